@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The benchmarks of GameBenchmarks on JMH: the tick of every game, MarsAttacks at 10, 100
+ * and 1,000 entities, the Snake autopilot, and the render of every panel into an offscreen
+ * image. The games are in the default package, which a named package cannot import, so the
+ * operations come from GameBenchmarks.operation() by name.
+ *
+ *   > mvn -B package
+ *   > java -jar benchmarks/target/benchmarks.jar
+ *
+ * The main method adds JMH's GC profiler, which reports the bytes allocated per operation,
+ * and takes JMH's usual options, for example -p name=DinoSim.tick to run one benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameBenchmarksJmh {
+
+    // The names of GameBenchmarks.NAMES.
+    @Param({"SnakeSim.tick", "SnakeAutopilot.decide:24x24", "SnakeAutopilot.decide:1000x1000", "DinoSim.tick",
+            "MarsAttacksSim.restore:10", "MarsAttacksSim.tick:10", "MarsAttacksSim.restore:100",
+            "MarsAttacksSim.tick:100", "MarsAttacksSim.restore:1000", "MarsAttacksSim.tick:1000",
+            "SnakeGame.GamePanel.render", "SnakeGame.GamePanel.render:10000x10000", "DinoGame.GamePanel.render",
+            "MarsAttacksGame.GamePanel.render"})
+    public String name;
+
+    private IntToLongFunction operation;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        operation = (IntToLongFunction) Class.forName("GameBenchmarks").getMethod("operation", String.class)
+                                             .invoke(null, name);
+    }
+
+    @Benchmark
+    public long run() {
+        return operation.applyAsLong(1);
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(GameBenchmarksJmh.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
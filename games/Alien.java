@@ -0,0 +1,56 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * The Alien class describes the enemy aliens. The aliens themselves are kept in an
+ * EntityStore and these methods run over the whole store at once; they move by the
+ * MOVEMENT system.
+ */
+class Alien {
+    public static final int WIDTH = 40;
+    public static final int HEIGHT = 40;
+    public static final int SPEED = 2;
+    /** The system that moves the aliens. */
+    public static final Movement MOVEMENT = Movement.DOWN;
+
+    // Every alien has the same size, so they are drawn from one prerendered oval;
+    // fillOval would allocate on every call.
+    private static final BufferedImage SPRITE = createSprite();
+
+    private Alien() {
+    }
+
+    private static BufferedImage createSprite() {
+        BufferedImage sprite = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = sprite.getGraphics();
+        g.setColor(Color.RED);
+        g.fillOval(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+        return sprite;
+    }
+
+    /**
+     * Adds an alien with its top-left corner at (x, y).
+     */
+    public static void spawn(EntityStore aliens, int x, int y) {
+        aliens.add(x, y, WIDTH, HEIGHT, SPEED);
+    }
+
+    /**
+     * Draws every alien as a red oval.
+     */
+    public static void draw(Graphics g, EntityStore aliens) {
+        draw(g, aliens, 0);
+    }
+
+    /**
+     * Draws every alien the given number of ticks back along its way, for frames between
+     * two ticks.
+     */
+    public static void draw(Graphics g, EntityStore aliens, float behind) {
+        for (int i = 0, n = aliens.size(); i < n; i++) {
+            g.drawImage(SPRITE, aliens.x[i], MOVEMENT.drawnY(aliens, i, behind), null);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javax.swing.SwingUtilities;
+
+/**
+ * Checks that the steady-state tick and paint of every game, and the game loop's own tick
+ * and frame around them, allocate nothing, using the per-thread allocation counter of the
+ * JVM. Each game is first warmed up so that the JIT
+ * has compiled the hot paths and the entity stores have grown to their working size, then
+ * five windows of 10,000 ticks (and of 10,000 frames painted into an offscreen image) are
+ * measured. The JIT can still recompile a hot method during a window, and deoptimizing it
+ * may allocate, so the window that allocated least counts. Fails with an AssertionError if
+ * even that one allocated. The ticks of the sims also allocate nothing with
+ * -XX:-DoEscapeAnalysis, so none of them relies on the JIT to remove an allocation; the
+ * panels do, inside Java2D.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java AllocationCheck.java
+ *   jshell> AllocationCheck.main(null)
+ */
+public class AllocationCheck {
+
+    private static final int WARMUP_TICKS = 200_000;
+    private static final int MEASURED_TICKS = 10_000;
+    private static final int WINDOWS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder failures = new StringBuilder();
+        check("SnakeSim.tick", snakeTicks(24), failures);
+        check("SnakeSim.tick 1000x1000", snakeTicks(1000), failures);
+        check("SnakeAutopilot.decide", snakeAutopilot(), failures);
+        check("DinoSim.tick", dinoTicks(), failures);
+        check("MarsAttacksSim.tick", marsTicks(), failures);
+
+        // Panels are ticked and rendered on the event dispatch thread, which also delivers their key events.
+        long[] painted = new long[4];
+        SwingUtilities.invokeAndWait(() -> {
+            painted[0] = snakeFrames();
+            painted[1] = dinoFrames();
+            painted[2] = marsFrames();
+            painted[3] = loopFrames();
+        });
+        check("SnakeGame.GamePanel frame", painted[0], failures);
+        check("DinoGame.GamePanel frame", painted[1], failures);
+        check("MarsAttacksGame.GamePanel frame", painted[2], failures);
+        check("GameLoop tick and frame", painted[3], failures);
+
+        if (failures.length() > 0) {
+            throw new AssertionError("steady-state ticks allocated:" + failures);
+        }
+    }
+
+    private static void check(String name, long bytes, StringBuilder failures) {
+        System.out.printf("%-34s %,10d bytes in %,d ticks (fewest of %d windows)%n", name, bytes, MEASURED_TICKS, WINDOWS);
+        if (bytes != 0) {
+            failures.append(' ').append(name).append('=').append(bytes);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // The bytes allocated in every window of MEASURED_TICKS ticks, counted from tick 0 on;
+    // keeps the fewest.
+    private static final class Windows {
+        private long start;
+        private long fewest = Long.MAX_VALUE;
+
+        /** Called before every tick i, negative during the warmup. */
+        void before(int i) {
+            if (i >= 0 && i % MEASURED_TICKS == 0) {
+                long now = allocatedBytes();
+                if (i > 0) {
+                    fewest = Math.min(fewest, now - start);
+                }
+                start = now;
+            }
+        }
+
+        /** Called after the last tick; returns the fewest bytes any window allocated. */
+        long fewest() {
+            return Math.min(fewest, allocatedBytes() - start);
+        }
+    }
+
+    // On the large board the apples are drawn from thousands of blocks of the free-cell
+    // bitset; the body buffer only grows on boards of more than 65,530 cells, and then
+    // only as the snake gets longer than it has ever been.
+    private static long snakeTicks(int size) {
+        SnakeSim sim = new SnakeSim(size, size);
+        Random input = new Random(1);
+        char[] directions = {SnakeSim.UP, SnakeSim.DOWN, SnakeSim.LEFT, SnakeSim.RIGHT};
+        long seed = 0;
+        sim.reset(seed);
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (!sim.isRunning()) {
+                sim.reset(++seed);
+            }
+            sim.step(directions[input.nextInt(4)]);
+        }
+        return windows.fewest();
+    }
+
+    private static long snakeAutopilot() {
+        SnakeSim sim = new SnakeSim(24, 24);
+        SnakeAutopilot autopilot = new SnakeAutopilot(sim);
+        long seed = 0;
+        sim.reset(seed);
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (!sim.isRunning()) {
+                sim.reset(++seed);
+            }
+            sim.step(autopilot.decide());
+        }
+        return windows.fewest();
+    }
+
+    private static long dinoTicks() {
+        DinoSim sim = new DinoSim();
+        Random input = new Random(2);
+        long seed = 0;
+        sim.reset(seed);
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (sim.isGameOver()) {
+                sim.reset(++seed);
+            }
+            if (input.nextInt(30) == 0) {
+                sim.jump();
+            }
+            sim.tick();
+        }
+        return windows.fewest();
+    }
+
+    private static long marsTicks() {
+        MarsAttacksSim sim = new MarsAttacksSim();
+        Random input = new Random(3);
+        long seed = 0;
+        sim.reset(seed);
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (sim.isGameOver()) {
+                sim.reset(++seed);
+            }
+            sim.setLeftPressed(input.nextInt(3) == 0);
+            sim.setRightPressed(input.nextInt(3) == 0);
+            if (input.nextInt(4) == 0) {
+                sim.fire();
+            }
+            sim.tick();
+        }
+        return windows.fewest();
+    }
+
+    private static long snakeFrames() {
+        SnakeGame.GamePanel panel = new SnakeGame.GamePanel();
+        KeyEvent[] keys = keys(panel, KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT);
+        Graphics2D g = image(600, 600);
+        KeyListener listener = panel.getKeyListeners()[0];
+        Random input = new Random(4);
+        long seed = 0;
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS / 10; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            // Restart every other game so both the board and the game over screen are painted.
+            if (!panel.getSim().isRunning() && ++seed % 2 == 0) {
+                panel.getSim().reset(seed);
+            }
+            listener.keyPressed(keys[input.nextInt(keys.length)]);
+            panel.tick();
+            panel.render(g);
+        }
+        return windows.fewest();
+    }
+
+    private static long dinoFrames() {
+        DinoGame.GamePanel panel = new DinoGame.GamePanel();
+        KeyEvent[] keys = keys(panel, KeyEvent.VK_SPACE);
+        Graphics2D g = image(800, 400);
+        Random input = new Random(5);
+        long seed = 0;
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS / 10; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (panel.getSim().isGameOver() && ++seed % 2 == 0) {
+                panel.getSim().reset(seed);
+            }
+            if (input.nextInt(30) == 0) {
+                panel.keyPressed(keys[0]);
+            }
+            panel.tick();
+            panel.render(g);
+        }
+        return windows.fewest();
+    }
+
+    private static long marsFrames() {
+        MarsAttacksGame.GamePanel panel = new MarsAttacksGame.GamePanel();
+        KeyEvent[] keys = keys(panel, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE);
+        Graphics2D g = image(800, 600);
+        Random input = new Random(6);
+        long seed = 0;
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS / 10; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (panel.getSim().isGameOver() && ++seed % 2 == 0) {
+                panel.getSim().reset(seed);
+            }
+            KeyEvent key = keys[input.nextInt(keys.length)];
+            panel.keyPressed(key);
+            panel.keyReleased(key);
+            panel.tick();
+            panel.render(g);
+        }
+        return windows.fewest();
+    }
+
+    // The tick and frame of the game loop itself, driven by hand around a panel: the timing,
+    // the overlay's histograms and the flight recorder events, which are only created while
+    // a recording wants them. Without a screen the canvas cannot be drawn to, so the frame
+    // stops before the render, which the checks above cover.
+    private static long loopFrames() {
+        MarsAttacksGame.GamePanel panel = new MarsAttacksGame.GamePanel();
+        GameLoop loop = new GameLoop(panel, panel, 1, 0);
+        KeyEvent[] keys = keys(panel, KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE);
+        Random input = new Random(7);
+        long seed = 0;
+        Windows windows = new Windows();
+        for (int i = -WARMUP_TICKS / 10; i < WINDOWS * MEASURED_TICKS; i++) {
+            windows.before(i);
+            if (panel.getSim().isGameOver()) {
+                panel.getSim().reset(++seed);
+            }
+            KeyEvent key = keys[input.nextInt(keys.length)];
+            panel.keyPressed(key);
+            panel.keyReleased(key);
+            loop.tick();
+            loop.renderFrame(1f);
+        }
+        return windows.fewest();
+    }
+
+    // Key events are created up front and reused, so the input itself does not allocate.
+    private static KeyEvent[] keys(Component source, int... codes) {
+        KeyEvent[] keys = new KeyEvent[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            keys[i] = new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, codes[i], KeyEvent.CHAR_UNDEFINED);
+        }
+        return keys;
+    }
+
+    private static Graphics2D image(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB).createGraphics();
+    }
+}
@@ -0,0 +1,43 @@
+import java.awt.Color;
+import java.awt.Graphics;
+
+/**
+ * The Bullet class describes the projectiles shot by the player. The bullets themselves
+ * are kept in an EntityStore and these methods run over the whole store at once; they
+ * move by the MOVEMENT system.
+ */
+class Bullet {
+    public static final int WIDTH = 5;
+    public static final int HEIGHT = 10;
+    public static final int SPEED = 7;
+    /** The system that moves the bullets. */
+    public static final Movement MOVEMENT = Movement.UP;
+
+    private Bullet() {
+    }
+
+    /**
+     * Adds a bullet with its top-left corner at (x, y).
+     */
+    public static void spawn(EntityStore bullets, int x, int y) {
+        bullets.add(x, y, WIDTH, HEIGHT, SPEED);
+    }
+
+    /**
+     * Draws every bullet as a yellow rectangle.
+     */
+    public static void draw(Graphics g, EntityStore bullets) {
+        draw(g, bullets, 0);
+    }
+
+    /**
+     * Draws every bullet the given number of ticks back along its way, for frames between
+     * two ticks.
+     */
+    public static void draw(Graphics g, EntityStore bullets, float behind) {
+        g.setColor(Color.YELLOW);
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            g.fillRect(bullets.x[i], MOVEMENT.drawnY(bullets, i, behind), bullets.width[i], bullets.height[i]);
+        }
+    }
+}
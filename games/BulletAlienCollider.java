@@ -0,0 +1,81 @@
+/**
+ * The BulletAlienCollider class finds bullet/alien hits using a uniform grid as broad phase,
+ * so each bullet is only tested against the aliens in the cells it overlaps.
+ */
+class BulletAlienCollider {
+    // Aliens are 40x40, so each one overlaps at most four cells.
+    static final int CELL_SIZE = 40;
+
+    private final SpatialGrid grid;
+    // Per-entity hit flags, indexed like the lists and grown on demand.
+    private boolean[] bulletHit = new boolean[64];
+    private boolean[] alienHit = new boolean[64];
+
+    public BulletAlienCollider(int worldWidth, int worldHeight) {
+        grid = new SpatialGrid(worldWidth, worldHeight, CELL_SIZE);
+    }
+
+    /**
+     * Removes every bullet that hits an alien together with the alien it hit and returns the
+     * number of hits. A bullet removes at most one alien (the one with the lowest index it
+     * overlaps) and an alien is removed by at most one bullet.
+     */
+    public int resolveHits(EntityStore bullets, EntityStore aliens) {
+        int bulletCount = bullets.size();
+        int alienCount = aliens.size();
+        if (bulletCount == 0 || alienCount == 0) {
+            return 0;
+        }
+        if (bulletHit.length < bulletCount) {
+            bulletHit = new boolean[Math.max(bulletCount, bulletHit.length * 2)];
+        }
+        if (alienHit.length < alienCount) {
+            alienHit = new boolean[Math.max(alienCount, alienHit.length * 2)];
+        }
+
+        // Build the grid over the aliens.
+        grid.clear();
+        for (int i = 0; i < alienCount; i++) {
+            grid.insert(i, aliens.x[i], aliens.y[i], aliens.width[i], aliens.height[i]);
+            alienHit[i] = false;
+        }
+
+        // Test each bullet against the aliens sharing a cell with it.
+        int hits = 0;
+        for (int i = 0; i < bulletCount; i++) {
+            int bx = bullets.x[i];
+            int by = bullets.y[i];
+            int bw = bullets.width[i];
+            int bh = bullets.height[i];
+            bulletHit[i] = false;
+            int candidates = grid.query(bx, by, bw, bh);
+            int target = Integer.MAX_VALUE;
+            for (int c = 0; c < candidates; c++) {
+                int id = grid.candidate(c);
+                if (id < target && !alienHit[id] && aliens.intersects(id, bx, by, bw, bh)) {
+                    target = id;
+                }
+            }
+            if (target != Integer.MAX_VALUE) {
+                bulletHit[i] = true;
+                alienHit[target] = true;
+                hits++;
+            }
+        }
+
+        // Remove from the end so every entity moved by a swap-remove was already checked.
+        if (hits > 0) {
+            for (int i = bulletCount - 1; i >= 0; i--) {
+                if (bulletHit[i]) {
+                    bullets.remove(i);
+                }
+            }
+            for (int i = alienCount - 1; i >= 0; i--) {
+                if (alienHit[i]) {
+                    aliens.remove(i);
+                }
+            }
+        }
+        return hits;
+    }
+}
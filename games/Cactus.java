@@ -0,0 +1,31 @@
+import java.awt.Color;
+import java.awt.Graphics;
+
+/**
+ * The Cactus class describes the obstacles. The cacti themselves are kept in a
+ * CactusDeque and these methods run over the whole deque at once.
+ */
+class Cactus {
+    // Pixels every cactus moves left per tick.
+    public static final int SPEED = 5;
+
+    private Cactus() {
+    }
+
+    // Add a cactus with its top-left corner at (x, y), right of all the others.
+    public static void spawn(CactusDeque cacti, int x, int y, int width, int height) {
+        cacti.addLast(x, y, width, height);
+    }
+
+    public static void draw(Graphics g, CactusDeque cacti) {
+        draw(g, cacti, 0);
+    }
+
+    // Draw the cacti dx pixels right of where they are, for frames between two ticks.
+    public static void draw(Graphics g, CactusDeque cacti, int dx) {
+        g.setColor(Color.DARK_GRAY);
+        for (int i = 0, n = cacti.size(); i < n; i++) {
+            g.fillRect(cacti.getX(i) + dx, cacti.getY(i), cacti.getWidth(i), cacti.getHeight(i));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * The CactusDeque class keeps the cacti sorted by x, left to right, in a ring buffer. All
+ * cacti move left at the same speed and new ones appear at the right edge, so a cactus is
+ * only ever added at the tail and removed at the head, and the order never changes.
+ *
+ * The cacti do not move themselves: each one keeps the x it would have with no scrolling,
+ * and a single scroll offset shared by all of them moves the lot in one step. Positions
+ * are ints and the offset is allowed to wrap around; x on screen is their difference,
+ * which stays right as long as it fits in an int.
+ */
+class CactusDeque {
+    // Field arrays of the ring; cactus i of the deque is in slot (head + i) & mask.
+    private int[] x;
+    private int[] y;
+    private int[] width;
+    private int[] height;
+    private int mask;
+    private int head;
+    private int size;
+
+    // How far everything has scrolled left, and the widest cactus since the last clear().
+    private int scroll;
+    private int widest;
+
+    public CactusDeque() {
+        this(16);
+    }
+
+    // Create an empty deque for the given number of cacti, rounded up to a power of two.
+    public CactusDeque(int capacity) {
+        int length = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        x = new int[length];
+        y = new int[length];
+        width = new int[length];
+        height = new int[length];
+        mask = length - 1;
+    }
+
+    // Add a cactus with its top-left corner at (x, y) on screen, which must not be left of
+    // the last cactus.
+    public void addLast(int x, int y, int width, int height) {
+        if (size > 0 && x < getX(size - 1)) {
+            throw new IllegalArgumentException("Cactus at " + x + " is left of the last one at " + getX(size - 1));
+        }
+        if (size == this.x.length) {
+            grow();
+        }
+        int slot = (head + size) & mask;
+        this.x[slot] = x + scroll;
+        this.y[slot] = y;
+        this.width[slot] = width;
+        this.height[slot] = height;
+        widest = Math.max(widest, width);
+        size++;
+    }
+
+    // Remove the leftmost cactus.
+    public void removeFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("No cactus to remove");
+        }
+        head = (head + 1) & mask;
+        size--;
+    }
+
+    // Move every cactus the given number of pixels left.
+    public void scroll(int dx) {
+        scroll += dx;
+    }
+
+    // Remove every cactus.
+    public void clear() {
+        head = 0;
+        size = 0;
+        scroll = 0;
+        widest = 0;
+    }
+
+    // Replace the contents of this deque with a copy of another one.
+    public void copyFrom(CactusDeque other) {
+        clear();
+        for (int i = 0; i < other.size; i++) {
+            addLast(other.getX(i), other.getY(i), other.getWidth(i), other.getHeight(i));
+        }
+        widest = other.widest;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Write the scroll offset and every cactus, leftmost first, to a snapshot. The cacti
+    // are written as they are kept, unscrolled, so they stay the same from tick to tick.
+    public void saveState(GameState state) {
+        state.writeInt(scroll);
+        state.writeInt(widest);
+        state.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & mask;
+            state.writeInt(x[slot]);
+            state.writeInt(y[slot]);
+            state.writeInt(width[slot]);
+            state.writeInt(height[slot]);
+        }
+    }
+
+    // Replace the contents of this deque with the cacti written by saveState().
+    public void loadState(GameState state) {
+        clear();
+        scroll = state.readInt();
+        widest = state.readInt();
+        int count = state.readInt();
+        while (x.length < count) {
+            grow();
+        }
+        for (int i = 0; i < count; i++) {
+            x[i] = state.readInt();
+            y[i] = state.readInt();
+            width[i] = state.readInt();
+            height[i] = state.readInt();
+        }
+        size = count;
+    }
+
+    // Return the number of cacti whose left edge is left of the given x, by binary search.
+    // Those are the cacti 0 to the result - 1.
+    public int countLeftOf(int x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getX(middle) < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Return true if cactus i overlaps the given rectangle (same test as Rectangle.intersects).
+    public boolean intersects(int i, int rx, int ry, int rw, int rh) {
+        return EntityStore.intersects(getX(i), getY(i), getWidth(i), getHeight(i), rx, ry, rw, rh);
+    }
+
+    // Fold every cactus into hash, leftmost first, for checksums of a game state.
+    public long hash(long hash) {
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + getX(i);
+            hash = 31 * hash + getY(i);
+            hash = 31 * hash + getWidth(i);
+            hash = 31 * hash + getHeight(i);
+        }
+        return 31 * hash + size;
+    }
+
+    // The position and size of cactus i on screen, counting from the left.
+    public int getX(int i) { return x[(head + i) & mask] - scroll; }
+    public int getY(int i) { return y[(head + i) & mask]; }
+    public int getWidth(int i) { return width[(head + i) & mask]; }
+    public int getHeight(int i) { return height[(head + i) & mask]; }
+
+    // Return the width of the widest cactus added since the last clear(). No cactus whose
+    // left edge is further left than this from a point reaches it.
+    public int getWidest() { return widest; }
+
+    // Double the capacity, moving the cacti to the start of the new arrays.
+    private void grow() {
+        int length = x.length * 2;
+        x = unwrap(x, length);
+        y = unwrap(y, length);
+        width = unwrap(width, length);
+        height = unwrap(height, length);
+        mask = length - 1;
+        head = 0;
+    }
+
+    private int[] unwrap(int[] field, int length) {
+        int[] copy = new int[length];
+        int first = field.length - head;
+        System.arraycopy(field, head, copy, 0, Math.min(first, size));
+        if (first < size) {
+            System.arraycopy(field, 0, copy, first, size - first);
+        }
+        return copy;
+    }
+}
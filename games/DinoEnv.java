@@ -0,0 +1,75 @@
+/**
+ * The DinoEnv class adapts a DinoSim to VectorEnv. Action 0 does nothing and action 1
+ * jumps. The observation describes the dinosaur and the next two cacti ahead of it, scaled
+ * to roughly [-1, 1]:
+ *
+ *   0     height of the dinosaur above the ground
+ *   1     vertical velocity of the dinosaur
+ *   2-4   distance to the next cactus, its width and its height (distance 1 if none)
+ *   5-7   the same for the cactus after it
+ *
+ * The reward is 1 for every tick survived and -1 for hitting a cactus.
+ */
+class DinoEnv implements VectorEnv.Env {
+    public static final int OBSERVATION_SIZE = 8;
+    public static final int ACTIONS = 2;
+
+    private final DinoSim sim = new DinoSim();
+
+    @Override
+    public void reset(long seed) {
+        sim.reset(seed);
+    }
+
+    @Override
+    public float step(int action) {
+        if (action == 1) {
+            sim.jump();
+        }
+        sim.tick();
+        return sim.isGameOver() ? -1 : 1;
+    }
+
+    @Override
+    public boolean isDone() {
+        return sim.isGameOver();
+    }
+
+    @Override
+    public void observe(float[] obs, int offset) {
+        Dinosaur dino = sim.getDino();
+        CactusDeque cacti = sim.getCacti();
+        obs[offset] = (float) (DinoSim.GROUND_Y - dino.getHeight() - dino.getY()) / DinoSim.HEIGHT;
+        obs[offset + 1] = (float) dino.getVelocityY() / 12;
+
+        // The cacti are sorted by x, so the two nearest not yet behind the dinosaur follow
+        // the ones that are.
+        int back = dino.getX();
+        int first = 0;
+        while (first < cacti.size() && cacti.getX(first) + cacti.getWidth(first) < back) {
+            first++;
+        }
+        int second = first + 1 < cacti.size() ? first + 1 : -1;
+        if (first == cacti.size()) {
+            first = -1;
+        }
+        observeCactus(obs, offset + 2, cacti, first, dino.getX() + dino.getWidth());
+        observeCactus(obs, offset + 5, cacti, second, dino.getX() + dino.getWidth());
+    }
+
+    private static void observeCactus(float[] obs, int offset, CactusDeque cacti, int i, int front) {
+        if (i < 0) {
+            obs[offset] = 1;
+            obs[offset + 1] = 0;
+            obs[offset + 2] = 0;
+        } else {
+            obs[offset] = (float) (cacti.getX(i) - front) / DinoSim.WIDTH;
+            obs[offset + 1] = (float) cacti.getWidth(i) / 100;
+            obs[offset + 2] = (float) cacti.getHeight(i) / 100;
+        }
+    }
+
+    public DinoSim getSim() {
+        return sim;
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.Random;
+
+/**
+ * Checks that DinoSim.fastForward plays exactly like ticking, and measures how much faster
+ * it is on long games. Every game is played twice from the same seed by the same simple
+ * player, once tick by tick and once skipping from one decision to the next, and the
+ * checksums of the final states must match; otherwise it fails with an AssertionError.
+ *
+ * The player jumps when it is on the ground and a cactus comes within reach, and now and
+ * then at random when that is safe, so jumps start at all sorts of points of the game,
+ * some of them mid-air where they do nothing. Played tick by tick it looks at the game
+ * before every tick; skipping ahead, it works out when it will next want to act, which is
+ * when a cactus comes within reach, the dinosaur lands, a random jump is due or a new
+ * cactus appears, and fast-forwards to there.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java DinoFastForward.java
+ *   jshell> DinoFastForward.main(null)
+ *
+ * Optional arguments set the number of games (default 200) and the most ticks per game
+ * (default 1,000,000).
+ */
+public class DinoFastForward {
+
+    // How close, in pixels, a cactus comes to the dinosaur before the player jumps.
+    private static final int REACH = 40;
+    // The player also jumps at random, on average every this many ticks.
+    private static final int RANDOM_JUMP_TICKS = 400;
+    // A random jump is only made if no cactus comes within reach for this many ticks, which
+    // is longer than a jump takes.
+    private static final int SAFE_TICKS = 50;
+
+    // The length of the last game played.
+    private static long ticksPlayed;
+
+    public static void main(String[] args) {
+        int games = args != null && args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long maxTicks = args != null && args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+
+        // Warm up both ways of playing so the JIT has compiled them before the timing.
+        for (long seed = -20; seed < 0; seed++) {
+            play(seed, maxTicks / 10, false);
+            play(seed, maxTicks / 10, true);
+        }
+
+        long ticks = 0;
+        long tickByTick = 0;
+        long fastForward = 0;
+        for (long seed = 0; seed < games; seed++) {
+            long start = System.nanoTime();
+            long expected = play(seed, maxTicks, false);
+            long middle = System.nanoTime();
+            long actual = play(seed, maxTicks, true);
+            fastForward += System.nanoTime() - middle;
+            tickByTick += middle - start;
+            if (actual != expected) {
+                throw new AssertionError(String.format("seed %d: fast forward ended in state %016x, ticking in %016x",
+                                                       seed, actual, expected));
+            }
+            ticks += ticksPlayed;
+        }
+        System.out.printf("%,d games, %,d ticks, all ended in the same state%n", games, ticks);
+        System.out.printf("tick by tick  %10.1f ms %,16.0f ticks/s%n", tickByTick / 1e6, ticks / (tickByTick / 1e9));
+        System.out.printf("fast forward  %10.1f ms %,16.0f ticks/s  (%.1fx)%n", fastForward / 1e6,
+                          ticks / (fastForward / 1e9), (double) tickByTick / fastForward);
+    }
+
+    // Plays one game for at most maxTicks and returns the checksum of the final state.
+    private static long play(long seed, long maxTicks, boolean skip) {
+        DinoSim sim = new DinoSim();
+        sim.reset(seed);
+        Random random = new Random(seed);
+        long randomJump = random.nextInt(2 * RANDOM_JUMP_TICKS);
+        while (!sim.isGameOver() && sim.getTicks() < maxTicks) {
+            if (sim.getTicks() == randomJump) {
+                if (ticksUntilInReach(sim) > SAFE_TICKS) {
+                    sim.jump();
+                }
+                randomJump += 1 + random.nextInt(2 * RANDOM_JUMP_TICKS);
+            }
+            if (sim.getDino().isOnGround() && ticksUntilInReach(sim) == 0) {
+                sim.jump();
+            }
+            if (!skip) {
+                sim.tick();
+                continue;
+            }
+            long next = Math.min(maxTicks, randomJump) - sim.getTicks();
+            next = Math.min(next, sim.ticksUntilSpawn());
+            if (sim.getDino().isOnGround()) {
+                next = Math.min(next, ticksUntilInReach(sim));
+            } else {
+                next = Math.min(next, sim.getDino().getTicksToLanding());
+            }
+            sim.fastForward(Math.max(1, next));
+        }
+        ticksPlayed = sim.getTicks();
+        return sim.checksum();
+    }
+
+    // Returns the number of ticks until a cactus that has not passed the dinosaur yet is
+    // within reach (0 if one is now), or Long.MAX_VALUE if none is on the screen.
+    private static long ticksUntilInReach(DinoSim sim) {
+        Dinosaur dino = sim.getDino();
+        CactusDeque cacti = sim.getCacti();
+        // The cacti are sorted by x, so the first one not past the dinosaur is the nearest.
+        for (int i = 0; i < cacti.size(); i++) {
+            if (cacti.getX(i) + cacti.getWidth(i) > dino.getX()) {
+                int distance = cacti.getX(i) - dino.getX() - dino.getWidth() - REACH;
+                return distance < 0 ? 0 : distance / Cactus.SPEED + 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -1,232 +1,233 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Random;
 
 public class DinoGame extends JFrame {
+    private static final long serialVersionUID = 1L;
     public DinoGame() {
+        this(null);
+    }
+
+    // Create and show the game window; args are [seed [log file]] for a deterministic, recorded session.
+    public DinoGame(String[] args) {
         setTitle("Dino Game - Jump Over the Cacti!");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
-        add(new GamePanel());
+        GamePanel panel = new GamePanel();
+        panel.startSession(args);
+        add(panel);
+        // Stop the game loop (and report its timing) before the application exits.
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                panel.stopGame();
+            }
+        });
         pack();
         setLocationRelativeTo(null); // Center the window.
         setVisible(true);
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new DinoGame());
+        SwingUtilities.invokeLater(() -> new DinoGame(args));
     }
-}
 
-/**
- * The GamePanel class handles game updates, drawing, and input.
- */
-class GamePanel extends JPanel implements ActionListener, KeyListener {
-
-    private final int PANEL_WIDTH = 800;
-    private final int PANEL_HEIGHT = 400;
-    private final int GROUND_Y = 300; // Y-coordinate of the ground.
-    private javax.swing.Timer timer;
-    private final int DELAY = 20;  // milliseconds (about 50 FPS)
-    
-    private Dinosaur dino;
-    private ArrayList<Cactus> cacti;
-    private boolean gameOver;
-    
-    // Variables for cactus spawning.
-    private int spawnTimer;
-    private Random random;
-
-    public GamePanel() {
-        setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
-        setBackground(Color.WHITE);
-        setFocusable(true);
-        addKeyListener(this);
-        initGame();
-    }
-    
-    // Initialize or reset the game.
-    private void initGame() {
-        dino = new Dinosaur(50, GROUND_Y - 50, 50, 50, GROUND_Y);
-        cacti = new ArrayList<>();
-        gameOver = false;
-        spawnTimer = 0;
-        random = new Random();
-        
-        if (timer != null && timer.isRunning()) {
-            timer.stop();
-        }
-        timer = new javax.swing.Timer(DELAY, this);
-        timer.start();
-    }
-    
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        // Draw the ground.
-        g.setColor(Color.GREEN.darker());
-        g.fillRect(0, GROUND_Y, PANEL_WIDTH, PANEL_HEIGHT - GROUND_Y);
-        
-        // Draw the dinosaur.
-        dino.draw(g);
-        
-        // Draw each cactus.
-        for (Cactus cactus : cacti) {
-            cactus.draw(g);
-        }
-        
-        // If the game is over, display a message.
-        if (gameOver) {
-            g.setColor(Color.RED);
-            g.setFont(new Font("Arial", Font.BOLD, 36));
-            String msg = "Game Over! Press R to Restart.";
-            FontMetrics fm = g.getFontMetrics();
-            int msgWidth = fm.stringWidth(msg);
-            g.drawString(msg, (PANEL_WIDTH - msgWidth) / 2, PANEL_HEIGHT / 2);
+    /**
+     * The GamePanel class draws the simulation and handles input, on a GameCanvas whose loop
+     * also ticks the simulation. Each frame only the previous and current bounds of the
+     * dinosaur and the cacti are redrawn.
+     */
+    static class GamePanel extends GameCanvas {
+        private static final long serialVersionUID = 1L;
+
+        private final int PANEL_WIDTH = DinoSim.WIDTH;
+        private final int PANEL_HEIGHT = DinoSim.HEIGHT;
+        private final int GROUND_Y = DinoSim.GROUND_Y; // Y-coordinate of the ground.
+
+        // Colors and text are created once so painting does not allocate.
+        private final Color GROUND_COLOR = Color.GREEN.darker();
+        private final TextSprite MESSAGE = new TextSprite("Game Over! Press R to Restart.", new Font("Arial", Font.BOLD, 36), Color.RED);
+
+        private final DinoSim sim = new DinoSim();
+
+        // Seeds of the games after a restart.
+        private final SnapshotRandom seeds = new SnapshotRandom();
+
+        // Where the dinosaur was before the last tick and whether the cacti moved in it, and
+        // how far frames draw them on the way from there (see setInterpolation).
+        private int fromDinoY;
+        private boolean stepped;
+        private float alpha = 1;
+
+        // What the last rendered frame showed, to work out what changed since.
+        private long shownTicks = -1;
+        private boolean shownGameOver;
+        private int shownDinoY;
+        private int shownCactusShift;
+        private final CactusDeque shownCacti = new CactusDeque();
+
+        public GamePanel() {
+            super(DinoSim.TICK_MILLIS);
+            setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
+            setBackground(Color.WHITE);
+            newSession(System.nanoTime());
         }
-    }
-    
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!gameOver) {
-            // Update the dinosaur.
-            dino.update();
-            
-            // Update cacti and check for collisions.
-            Iterator<Cactus> iter = cacti.iterator();
-            while (iter.hasNext()) {
-                Cactus cactus = iter.next();
-                cactus.update();
-                // Remove the cactus if it moves off the left edge.
-                if (cactus.getX() + cactus.getWidth() < 0) {
-                    iter.remove();
-                }
-                // Check for collision between the dinosaur and a cactus.
-                if (cactus.getBounds().intersects(dino.getBounds())) {
-                    gameOver = true;
-                    timer.stop();
-                }
+
+        @Override
+        String getGameName() {
+            return "DinoGame";
+        }
+
+        // Write the session, the seeds of later games included, to a snapshot.
+        @Override
+        public void saveState(GameState state) {
+            sim.saveState(state);
+            state.writeLong(sessionTicks);
+            state.writeRandom(seeds);
+        }
+
+        // Put the session back in a state written by saveState().
+        @Override
+        public void loadState(GameState state) {
+            sim.loadState(state);
+            sessionTicks = state.readLong();
+            state.readRandom(seeds);
+            holdPositions(false);
+        }
+
+        // Start a new session: the first game gets the seed, restarts get seeds derived from it.
+        @Override
+        public synchronized void newSession(long seed) {
+            seeds.setSeed(seed);
+            sim.reset(seed);
+            sessionTicks = 0;
+            holdPositions(false);
+        }
+
+        // Return the simulation shown by the panel.
+        DinoSim getSim() {
+            return sim;
+        }
+
+        // Fill in the tick and number of cacti of a flight recorder event.
+        @Override
+        public void describe(GameEvent event) {
+            event.game = "DinoGame";
+            event.tick = sim.getTicks();
+            event.cacti = sim.getCacti().size();
+        }
+
+        // Draw the dinosaur and the cacti the given part of the way through the last tick.
+        @Override
+        public void setInterpolation(float alpha) {
+            this.alpha = alpha;
+        }
+
+        // Take the dinosaur where it is as the start of its next move; stepped tells whether
+        // the cacti move in the coming tick.
+        private void holdPositions(boolean stepped) {
+            fromDinoY = sim.getDino().getY();
+            this.stepped = stepped;
+        }
+
+        // The y the dinosaur is drawn at, between the last two ticks.
+        private int drawnDinoY() {
+            return fromDinoY + Math.round((sim.getDino().getY() - fromDinoY) * alpha);
+        }
+
+        // How far right of where they are the cacti are drawn, between the last two ticks.
+        private int drawnCactusShift() {
+            return stepped ? Math.round(Cactus.SPEED * (1 - alpha)) : 0;
+        }
+
+        // Report the previous and current bounds of the dinosaur and the cacti.
+        @Override
+        public void collectDirty(DirtyRegion dirty) {
+            long ticks = sim.getTicks();
+            int dinoY = drawnDinoY();
+            int shift = drawnCactusShift();
+            if (ticks == shownTicks && sim.isGameOver() == shownGameOver && dinoY == shownDinoY
+                    && shift == shownCactusShift) {
+                return;
             }
-            
-            // Spawn new cactus at random intervals.
-            spawnTimer += DELAY;
-            // Spawn roughly every 1.5 to 2.5 seconds.
-            if (spawnTimer >= 1500 + random.nextInt(1000)) {
-                int cactusWidth = 20 + random.nextInt(10);   // Width between 20 and 30.
-                int cactusHeight = 40 + random.nextInt(20);    // Height between 40 and 60.
-                // Position the cactus at the right edge, on the ground.
-                Cactus cactus = new Cactus(PANEL_WIDTH, GROUND_Y - cactusHeight, cactusWidth, cactusHeight, 5);
-                cacti.add(cactus);
-                spawnTimer = 0;
+            Dinosaur dino = sim.getDino();
+            if (ticks < shownTicks || sim.isGameOver() != shownGameOver) {
+                // A new game, or the game over message.
+                dirty.addAll();
+            } else {
+                // The dinosaur only moves up and down.
+                int top = Math.min(shownDinoY, dinoY);
+                int bottom = Math.max(shownDinoY, dinoY) + dino.getHeight();
+                dirty.add(dino.getX(), top, dino.getWidth(), bottom - top);
+                addBounds(dirty, shownCacti, 0);
+                addBounds(dirty, sim.getCacti(), shift);
             }
+            shownTicks = ticks;
+            shownGameOver = sim.isGameOver();
+            shownDinoY = dinoY;
+            shownCactusShift = shift;
+            shownCacti.copyFrom(sim.getCacti());
+            shownCacti.scroll(-shift);
         }
-        repaint();
-    }
-    
-    // Handle key presses.
-    @Override
-    public void keyPressed(KeyEvent e) {
-        if (!gameOver) {
-            if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-                dino.jump();
+
+        private static void addBounds(DirtyRegion dirty, CactusDeque cacti, int dx) {
+            for (int i = 0; i < cacti.size(); i++) {
+                dirty.add(cacti.getX(i) + dx, cacti.getY(i), cacti.getWidth(i), cacti.getHeight(i));
             }
-        } else {
-            if (e.getKeyCode() == KeyEvent.VK_R) {
-                initGame();
+        }
+
+        @Override
+        public void render(Graphics2D g) {
+            // The sky and the ground are two solid fills, which cost less than copying a cached
+            // layer of the same size would.
+            g.setColor(getBackground());
+            g.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+            g.setColor(GROUND_COLOR);
+            g.fillRect(0, GROUND_Y, PANEL_WIDTH, PANEL_HEIGHT - GROUND_Y);
+
+            // Draw the dinosaur.
+            sim.getDino().draw(g, drawnDinoY());
+
+            // Draw each cactus.
+            Cactus.draw(g, sim.getCacti(), drawnCactusShift());
+
+            // If the game is over, display a message.
+            if (sim.isGameOver()) {
+                MESSAGE.draw(g, (PANEL_WIDTH - MESSAGE.getWidth()) / 2, PANEL_HEIGHT / 2);
             }
         }
-    }
-    
-    @Override public void keyReleased(KeyEvent e) { }
-    @Override public void keyTyped(KeyEvent e) { }
-}
 
-/**
- * The Dinosaur class represents the player’s character.
- */
-class Dinosaur {
-    private int x, y, width, height;
-    private int groundY;
-    private double velocityY;
-    private final double gravity = 0.6;
-    private final double jumpStrength = -12;
-    
-    public Dinosaur(int x, int y, int width, int height, int groundY) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-        this.groundY = groundY;
-        velocityY = 0;
-    }
-    
-    // Update the dinosaur’s vertical position.
-    public void update() {
-        y += velocityY;
-        velocityY += gravity;
-        
-        // If the dinosaur lands, reset its position.
-        if (y >= groundY - height) {
-            y = groundY - height;
-            velocityY = 0;
+        @Override
+        protected void step() {
+            holdPositions(!sim.isGameOver());
+            if (!sim.isGameOver()) {
+                sim.tick();
+            }
         }
-    }
-    
-    // Initiate a jump if the dinosaur is on the ground.
-    public void jump() {
-        if (y >= groundY - height) {
-            velocityY = jumpStrength;
+
+        // Jump on space, restart on R after the game is over.
+        @Override
+        public boolean input(int keyCode, boolean pressed) {
+            if (!pressed) {
+                return false;
+            }
+            if (!sim.isGameOver()) {
+                if (keyCode == KeyEvent.VK_SPACE) {
+                    sim.jump();
+                    return true;
+                }
+            } else {
+                if (keyCode == KeyEvent.VK_R) {
+                    sim.reset(seeds.nextLong());
+                    return true;
+                }
+            }
+            return false;
         }
-    }
-    
-    public void draw(Graphics g) {
-        g.setColor(Color.BLUE);
-        g.fillRect(x, y, width, height);
-    }
-    
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
-    }
-}
 
-/**
- * The Cactus class represents an obstacle.
- */
-class Cactus {
-    private int x, y, width, height;
-    private int speed;
-    
-    public Cactus(int x, int y, int width, int height, int speed) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-        this.speed = speed;
-    }
-    
-    // Move the cactus leftward.
-    public void update() {
-        x -= speed;
-    }
-    
-    public void draw(Graphics g) {
-        g.setColor(Color.DARK_GRAY);
-        g.fillRect(x, y, width, height);
-    }
-    
-    public int getX() {
-        return x;
-    }
-    
-    public int getWidth() {
-        return width;
-    }
-    
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
+        @Override
+        public long checksum() {
+            return sim.checksum();
+        }
     }
 }
-
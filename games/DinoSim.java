@@ -0,0 +1,196 @@
+/**
+ * The DinoSim class holds the game state and rules without any Swing dependency, so it can
+ * be stepped headless. One tick is 20 ms of game time.
+ */
+class DinoSim {
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 400;
+    public static final int GROUND_Y = 300; // Y-coordinate of the ground.
+    public static final int TICK_MILLIS = 20;
+
+    private final Dinosaur dino = new Dinosaur(50, GROUND_Y - 50, 50, 50, GROUND_Y);
+    private final CactusDeque cacti = new CactusDeque();
+    private boolean gameOver;
+    private long ticks;
+
+    // Variables for cactus spawning: the time since the last cactus, and the time at which
+    // the next one appears.
+    private int spawnTimer;
+    private int nextSpawn;
+    private final SnapshotRandom random = new SnapshotRandom();
+
+    /** Starts a new game; the same seed always produces the same cacti. */
+    public void reset(long seed) {
+        random.setSeed(seed);
+        dino.reset();
+        cacti.clear();
+        gameOver = false;
+        spawnTimer = 0;
+        nextSpawn = nextSpawnDelay();
+        ticks = 0;
+    }
+
+    /** Makes the dinosaur jump if it is on the ground. */
+    public void jump() {
+        dino.jump();
+    }
+
+    /** Advances the game by one tick. */
+    public void tick() {
+        if (gameOver) {
+            return;
+        }
+        ticks++;
+        // Update the dinosaur.
+        dino.update();
+
+        // Move the cacti, all together, and check for collisions with the few of them that
+        // overlap the dinosaur horizontally.
+        cacti.scroll(Cactus.SPEED);
+        int left = dino.getX();
+        for (int i = cacti.countLeftOf(left + dino.getWidth()) - 1; i >= 0 && cacti.getX(i) + cacti.getWidest() > left; i--) {
+            if (cacti.intersects(i, left, dino.getY(), dino.getWidth(), dino.getHeight())) {
+                gameOver = true;
+            }
+        }
+        // Remove the cacti that moved off the left edge; they are the oldest.
+        while (cacti.size() > 0 && cacti.getX(0) + cacti.getWidth(0) < 0) {
+            cacti.removeFirst();
+        }
+
+        // Spawn new cactus at random intervals.
+        spawnTimer += TICK_MILLIS;
+        if (spawnTimer >= nextSpawn) {
+            int cactusWidth = 20 + random.nextInt(10);   // Width between 20 and 30.
+            int cactusHeight = 40 + random.nextInt(20);    // Height between 40 and 60.
+            // Position the cactus at the right edge, on the ground.
+            Cactus.spawn(cacti, WIDTH, GROUND_Y - cactusHeight, cactusWidth, cactusHeight);
+            spawnTimer = 0;
+            nextSpawn = nextSpawnDelay();
+        }
+    }
+
+    // Spawn roughly every 1.5 to 2.5 seconds: every tick the game draws a new threshold
+    // between the two, and a cactus appears once the time since the last one reaches it.
+    // Nothing else draws from the generator between two cacti, so all the draws up to the
+    // next spawn are made at once, when the previous cactus appears, in the same order as
+    // tick by tick. The same seed gives the same cacti, and the time of the next spawn is
+    // known in advance.
+    private int nextSpawnDelay() {
+        int delay = 0;
+        do {
+            delay += TICK_MILLIS;
+        } while (delay < 1500 + random.nextInt(1000));
+        return delay;
+    }
+
+    /**
+     * Advances the game by up to the given number of ticks without input, or until it is
+     * over, and returns the number of ticks done. The result is exactly the same as calling
+     * tick() that many times, but between events the dinosaur and the cacti are moved in
+     * closed form: only the ticks in which a cactus spawns, leaves the screen or hits the
+     * dinosaur are simulated one by one.
+     */
+    public long fastForward(long maxTicks) {
+        long done = 0;
+        while (done < maxTicks && !gameOver) {
+            // The next tick in which something happens; everything before it is just motion.
+            long event = Math.min(maxTicks - done, ticksUntilSpawn());
+            if (cacti.size() > 0) {
+                event = Math.min(event, (cacti.getX(0) + cacti.getWidth(0)) / Cactus.SPEED + 1);
+            }
+            event = Math.min(event, ticksUntilCollision(event));
+            skip(event - 1);
+            tick();
+            done += event;
+        }
+        return done;
+    }
+
+    /**
+     * Returns the number of ticks until a cactus that is on the screen now hits the
+     * dinosaur, if there is no input in between, counting the tick of the hit; or
+     * Long.MAX_VALUE if none of them will.
+     */
+    public long ticksUntilCollision() {
+        return ticksUntilCollision(Long.MAX_VALUE);
+    }
+
+    // Like ticksUntilCollision(), looking at most limit ticks ahead.
+    private long ticksUntilCollision(long limit) {
+        long first = Long.MAX_VALUE;
+        int speed = Cactus.SPEED;
+        for (int i = 0; i < cacti.size(); i++) {
+            int x = cacti.getX(i);
+            // The ticks in which the cactus overlaps the dinosaur horizontally. The cacti are
+            // sorted by x, so once one only gets there too late, so do the rest.
+            long from = Math.max(1, Math.floorDiv(x - dino.getX() - dino.getWidth(), speed) + 1);
+            long to = Math.min(Math.min(limit, first - 1), Math.floorDiv(x + cacti.getWidth(i) - dino.getX() - 1, speed));
+            if (from > Math.min(limit, first - 1)) {
+                break;
+            }
+            for (long t = from; t <= to; t++) {
+                if (EntityStore.intersects((int) (x - speed * t), cacti.getY(i), cacti.getWidth(i), cacti.getHeight(i),
+                                           dino.getX(), dino.getYAfter(t), dino.getWidth(), dino.getHeight())) {
+                    first = t;
+                    break;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Returns the number of ticks until the tick in which the next cactus spawns, counting
+     * that tick. A controller that skips ahead can stop there to look at the new cactus.
+     */
+    public long ticksUntilSpawn() {
+        return Math.max(1, (nextSpawn - spawnTimer + TICK_MILLIS - 1) / TICK_MILLIS);
+    }
+
+    // Moves everything on by the given number of ticks in which nothing but motion happens.
+    private void skip(long n) {
+        if (n <= 0) {
+            return;
+        }
+        ticks += n;
+        dino.advance(n);
+        cacti.scroll((int) (Cactus.SPEED * n));
+        spawnTimer += (int) (TICK_MILLIS * n);
+    }
+
+    /** Writes the state of the game to a snapshot. */
+    public void saveState(GameState state) {
+        state.writeLong(ticks);
+        state.writeBoolean(gameOver);
+        state.writeInt(spawnTimer);
+        state.writeInt(nextSpawn);
+        state.writeRandom(random);
+        dino.saveState(state);
+        cacti.saveState(state);
+    }
+
+    /** Puts the game back in a state written by saveState(). */
+    public void loadState(GameState state) {
+        ticks = state.readLong();
+        gameOver = state.readBoolean();
+        spawnTimer = state.readInt();
+        nextSpawn = state.readInt();
+        state.readRandom(random);
+        dino.loadState(state);
+        cacti.loadState(state);
+    }
+
+    /** Returns a hash of the game state, the dinosaur and the cacti included. */
+    public long checksum() {
+        long hash = ticks;
+        hash = 31 * (31 * hash + dino.getY()) + Double.doubleToLongBits(dino.getVelocityY());
+        hash = 31 * (31 * (31 * hash + spawnTimer) + nextSpawn) + (gameOver ? 1 : 0);
+        return cacti.hash(hash);
+    }
+
+    public Dinosaur getDino() { return dino; }
+    public CactusDeque getCacti() { return cacti; }
+    public boolean isGameOver() { return gameOver; }
+    public long getTicks() { return ticks; }
+}
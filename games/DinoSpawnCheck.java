@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that DinoSim spawns the cacti of the original DinoGame: from the same seed, the
+ * same cacti at the same positions in every tick. The original cactus rules are played
+ * next to the sim as they were written, with a java.util.Random drawing a new spawn
+ * threshold every tick, while a simple player jumps the dinosaur over the cacti so the
+ * games last. Fails with an AssertionError at the first tick where the two differ.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java DinoSpawnCheck.java
+ *   jshell> DinoSpawnCheck.main(null)
+ *
+ * Optional arguments set the number of games (default 200) and the most ticks per game
+ * (default 100,000).
+ */
+public class DinoSpawnCheck {
+
+    // How close, in pixels, a cactus comes to the dinosaur before the player jumps.
+    private static final int REACH = 40;
+
+    public static void main(String[] args) {
+        int games = args != null && args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long maxTicks = args != null && args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+
+        long ticks = 0;
+        long spawned = 0;
+        for (long seed = 0; seed < games; seed++) {
+            DinoSim sim = new DinoSim();
+            sim.reset(seed);
+            Original original = new Original(seed);
+            while (!sim.isGameOver() && sim.getTicks() < maxTicks) {
+                if (sim.getDino().isOnGround() && cactusInReach(sim)) {
+                    sim.jump();
+                }
+                sim.tick();
+                original.tick();
+                compare(seed, sim, original);
+            }
+            ticks += sim.getTicks();
+            spawned += original.spawned;
+        }
+        System.out.printf("%,d games, %,d ticks, %,d cacti, all spawned as in the original game%n", games, ticks, spawned);
+    }
+
+    // Fails unless the sim has the same cacti as the original game, in the same order.
+    private static void compare(long seed, DinoSim sim, Original original) {
+        CactusDeque cacti = sim.getCacti();
+        boolean same = cacti.size() == original.cacti.size();
+        for (int i = 0; same && i < cacti.size(); i++) {
+            int[] cactus = original.cacti.get(i);
+            same = cacti.getX(i) == cactus[0] && cacti.getY(i) == cactus[1]
+                   && cacti.getWidth(i) == cactus[2] && cacti.getHeight(i) == cactus[3];
+        }
+        if (!same) {
+            StringBuilder actual = new StringBuilder();
+            for (int i = 0; i < cacti.size(); i++) {
+                actual.append(String.format(" (%d,%d %dx%d)", cacti.getX(i), cacti.getY(i), cacti.getWidth(i), cacti.getHeight(i)));
+            }
+            StringBuilder expected = new StringBuilder();
+            for (int[] cactus : original.cacti) {
+                expected.append(String.format(" (%d,%d %dx%d)", cactus[0], cactus[1], cactus[2], cactus[3]));
+            }
+            throw new AssertionError(String.format("seed %d, tick %d: cacti%s, the original game has%s",
+                                                   seed, sim.getTicks(), actual, expected));
+        }
+    }
+
+    // Returns whether a cactus that has not passed the dinosaur yet is within reach.
+    private static boolean cactusInReach(DinoSim sim) {
+        Dinosaur dino = sim.getDino();
+        CactusDeque cacti = sim.getCacti();
+        for (int i = 0; i < cacti.size(); i++) {
+            if (cacti.getX(i) + cacti.getWidth(i) > dino.getX()) {
+                return cacti.getX(i) - dino.getX() - dino.getWidth() < REACH;
+            }
+        }
+        return false;
+    }
+
+    // The cacti of the original DinoGame.actionPerformed, each one {x, y, width, height}.
+    // Nothing else there draws from the generator, so the dinosaur is left out.
+    private static final class Original {
+        private final List<int[]> cacti = new ArrayList<>();
+        private final Random random;
+        private int spawnTimer;
+        private long spawned;
+
+        Original(long seed) {
+            random = new Random(seed);
+        }
+
+        void tick() {
+            cacti.removeIf(cactus -> {
+                cactus[0] -= Cactus.SPEED;
+                return cactus[0] + cactus[2] < 0;
+            });
+            // Spawn new cactus at random intervals.
+            spawnTimer += DinoSim.TICK_MILLIS;
+            // Spawn roughly every 1.5 to 2.5 seconds.
+            if (spawnTimer >= 1500 + random.nextInt(1000)) {
+                int cactusWidth = 20 + random.nextInt(10);   // Width between 20 and 30.
+                int cactusHeight = 40 + random.nextInt(20);    // Height between 40 and 60.
+                // Position the cactus at the right edge, on the ground.
+                cacti.add(new int[] {DinoSim.WIDTH, DinoSim.GROUND_Y - cactusHeight, cactusWidth, cactusHeight});
+                spawnTimer = 0;
+                spawned++;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Arrays;
+
+/**
+ * The Dinosaur class represents the player’s character. Every jump starts from rest on
+ * the ground and follows the same arc, so the arc is integrated once, tick by tick, when
+ * the dinosaur is created; after that the position any number of ticks into a jump is a
+ * table lookup, which lets DinoSim skip ahead without changing the outcome.
+ */
+class Dinosaur {
+    private int x, y, width, height;
+    private int groundY;
+    private double velocityY;
+    private final double gravity = 0.6;
+    private final double jumpStrength = -12;
+
+    // Position and velocity after each tick of a jump (index 0 is the take-off), and how far
+    // into the current jump the dinosaur is, or -1 on the ground.
+    private final int[] arcY;
+    private final double[] arcVelocityY;
+    private int arcTick = -1;
+    
+    // Create a dinosaur standing on the ground.
+    public Dinosaur(int x, int y, int width, int height, int groundY) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.groundY = groundY;
+        velocityY = 0;
+
+        // Integrate a jump until the dinosaur lands again.
+        int[] ys = new int[64];
+        double[] velocities = new double[64];
+        int arcLength = 0;
+        int jumpY = groundY - height;
+        double jumpVelocityY = jumpStrength;
+        while (jumpY < groundY - height || arcLength == 0) {
+            if (arcLength == ys.length) {
+                ys = Arrays.copyOf(ys, 2 * arcLength);
+                velocities = Arrays.copyOf(velocities, 2 * arcLength);
+            }
+            ys[arcLength] = jumpY;
+            velocities[arcLength] = jumpVelocityY;
+            arcLength++;
+            jumpY += jumpVelocityY;
+            jumpVelocityY += gravity;
+        }
+        arcY = Arrays.copyOf(ys, arcLength);
+        arcVelocityY = Arrays.copyOf(velocities, arcLength);
+    }
+    
+    // Update the dinosaur’s vertical position.
+    public void update() {
+        advance(1);
+    }
+
+    // Move the dinosaur as many ticks on as update() would, in one step.
+    public void advance(long ticks) {
+        if (arcTick < 0) {
+            return;
+        }
+        long t = arcTick + ticks;
+        if (t >= arcY.length) {
+            // The dinosaur lands.
+            reset();
+        } else {
+            arcTick = (int) t;
+            y = arcY[arcTick];
+            velocityY = arcVelocityY[arcTick];
+        }
+    }
+
+    // Return the y coordinate the dinosaur will have after the given number of ticks.
+    public int getYAfter(long ticks) {
+        long t = arcTick + ticks;
+        return arcTick < 0 || t >= arcY.length ? groundY - height : arcY[(int) t];
+    }
+
+    // Return the number of ticks until the dinosaur is back on the ground (0 if it is).
+    public int getTicksToLanding() {
+        return arcTick < 0 ? 0 : arcY.length - arcTick;
+    }
+    
+    // Put the dinosaur back on the ground, at rest.
+    public void reset() {
+        y = groundY - height;
+        velocityY = 0;
+        arcTick = -1;
+    }
+
+    // Initiate a jump if the dinosaur is on the ground.
+    public void jump() {
+        if (arcTick < 0) {
+            arcTick = 0;
+            velocityY = jumpStrength;
+        }
+    }
+
+    // Write how far into a jump the dinosaur is; the rest follows from that.
+    public void saveState(GameState state) {
+        state.writeInt(arcTick);
+    }
+
+    // Put the dinosaur back in a state written by saveState().
+    public void loadState(GameState state) {
+        arcTick = state.readInt();
+        if (arcTick < 0) {
+            reset();
+        } else {
+            y = arcY[arcTick];
+            velocityY = arcVelocityY[arcTick];
+        }
+    }
+
+    public boolean isOnGround() { return arcTick < 0; }
+    
+    public void draw(Graphics g) {
+        draw(g, y);
+    }
+
+    // Draw the dinosaur at the given y, for frames between two ticks.
+    public void draw(Graphics g, int drawY) {
+        g.setColor(Color.BLUE);
+        g.fillRect(x, drawY, width, height);
+    }
+    
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public double getVelocityY() { return velocityY; }
+}
@@ -0,0 +1,142 @@
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+
+/**
+ * The DirtyRegion class collects the parts of a frame that changed since the previous one,
+ * as a short list of rectangles kept in int arrays. Rectangles that touch or overlap are
+ * merged as they are added; past the capacity a new rectangle is merged into the one it
+ * grows least, and once the rectangles cover half of the frame the region becomes the whole
+ * frame, which is cheaper to redraw in one pass than piece by piece.
+ */
+class DirtyRegion {
+    private static final int CAPACITY = 16;
+
+    private final int width;
+    private final int height;
+
+    final int[] x = new int[CAPACITY];
+    final int[] y = new int[CAPACITY];
+    final int[] w = new int[CAPACITY];
+    final int[] h = new int[CAPACITY];
+    private int size;
+    private boolean all;
+
+    /** Creates an empty region for a frame of the given size. */
+    public DirtyRegion(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /** Marks a rectangle as changed; it is clipped to the frame. */
+    public void add(int rx, int ry, int rw, int rh) {
+        if (all) {
+            return;
+        }
+        // Clip to the frame.
+        int x2 = Math.min(width, rx + rw);
+        int y2 = Math.min(height, ry + rh);
+        rx = Math.max(0, rx);
+        ry = Math.max(0, ry);
+        if (rx >= x2 || ry >= y2) {
+            return;
+        }
+        rw = x2 - rx;
+        rh = y2 - ry;
+
+        // Merge into a rectangle it touches, or failing that, append it.
+        int target = -1;
+        for (int i = 0; i < size; i++) {
+            if (rx <= x[i] + w[i] && x[i] <= rx + rw && ry <= y[i] + h[i] && y[i] <= ry + rh) {
+                target = i;
+                break;
+            }
+        }
+        if (target < 0 && size < CAPACITY) {
+            x[size] = rx;
+            y[size] = ry;
+            w[size] = rw;
+            h[size] = rh;
+            size++;
+        } else {
+            if (target < 0) {
+                target = cheapestMerge(rx, ry, rw, rh);
+            }
+            int ux = Math.min(x[target], rx);
+            int uy = Math.min(y[target], ry);
+            w[target] = Math.max(x[target] + w[target], rx + rw) - ux;
+            h[target] = Math.max(y[target] + h[target], ry + rh) - uy;
+            x[target] = ux;
+            y[target] = uy;
+        }
+
+        if (2 * getArea() >= (long) width * height) {
+            addAll();
+        }
+    }
+
+    /** Marks the whole frame as changed. */
+    public void addAll() {
+        all = true;
+        size = 1;
+        x[0] = 0;
+        y[0] = 0;
+        w[0] = width;
+        h[0] = height;
+    }
+
+    /** Forgets every rectangle, leaving the region empty. */
+    public void clear() {
+        all = false;
+        size = 0;
+    }
+
+    /** Returns the number of rectangles. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if the region is the whole frame. */
+    public boolean isAll() {
+        return all;
+    }
+
+    /** Returns the number of pixels covered by the rectangles. */
+    public long getArea() {
+        long area = 0;
+        for (int i = 0; i < size; i++) {
+            area += (long) w[i] * h[i];
+        }
+        return area;
+    }
+
+    /** Clips g to the i-th rectangle. */
+    public void clip(Graphics2D g, int i) {
+        g.setClip(x[i], y[i], w[i], h[i]);
+    }
+
+    /** Copies every rectangle of the region from the image to the same place in g. */
+    public void copy(Image from, Graphics g) {
+        for (int i = 0; i < size; i++) {
+            int x2 = x[i] + w[i];
+            int y2 = y[i] + h[i];
+            g.drawImage(from, x[i], y[i], x2, y2, x[i], y[i], x2, y2, null);
+        }
+    }
+
+    // Finds the rectangle whose area grows least when the given one is merged into it.
+    private int cheapestMerge(int rx, int ry, int rw, int rh) {
+        int best = 0;
+        long bestGrowth = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            long uw = Math.max(x[i] + w[i], rx + rw) - Math.min(x[i], rx);
+            long uh = Math.max(y[i] + h[i], ry + rh) - Math.min(y[i], ry);
+            long growth = uw * uh - (long) w[i] * h[i];
+            if (growth < bestGrowth) {
+                best = i;
+                bestGrowth = growth;
+            }
+        }
+        return best;
+    }
+}
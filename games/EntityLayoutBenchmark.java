@@ -0,0 +1,149 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the per-entity cost of the two ways Mars Attacks has kept its bullets and
+ * aliens, run with Microbench. The original game had a class per kind of entity: an object
+ * per alien in an ArrayList, moved by a method on the object and tested for hits through
+ * getBounds(), which allocates a Rectangle every call. It now keeps each kind in an
+ * EntityStore, one primitive array per field, and Alien.MOVEMENT runs over contiguous
+ * chunks of it, as the SystemSet of a tick hands them out.
+ *
+ * Every operation is one entity: moved one tick, or tested against the player's ship. The
+ * lines are per entity, so they can be compared across sizes, from a store that fits the
+ * L1 cache to one that does not fit L2. The objects are allocated one after the other and
+ * never moved around, the best case for them; and where the Rectangles of a hit test do not
+ * escape, the JIT may remove them, which the bytes/op column shows.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java Microbench.java EntityLayoutBenchmark.java
+ *   jshell> EntityLayoutBenchmark.main(null)
+ *
+ * An optional argument sets the length of each iteration in milliseconds (default 1000).
+ */
+public class EntityLayoutBenchmark {
+
+    private static final int[] SIZES = {1_000, 100_000};
+
+    public static void main(String[] args) {
+        long iterationMillis = args != null && args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        Microbench bench = new Microbench(3, 5, iterationMillis);
+        bench.printHeader();
+
+        for (int size : SIZES) {
+            List<ObjectAlien> objects = new ArrayList<>();
+            EntityStore store = new EntityStore();
+            Random random = new Random(size);
+            for (int i = 0; i < size; i++) {
+                int x = random.nextInt(MarsAttacksSim.WIDTH - Alien.WIDTH);
+                int y = random.nextInt(MarsAttacksSim.HEIGHT);
+                objects.add(new ObjectAlien(x, y, Alien.WIDTH, Alien.HEIGHT));
+                Alien.spawn(store, x, y);
+            }
+            bench.run("objects   move       " + size, objectMove(objects));
+            bench.run("systems   move       " + size, storeMove(store));
+            bench.run("objects   intersect  " + size, objectIntersect(objects));
+            bench.run("store     intersect  " + size, storeIntersect(store));
+        }
+        System.out.println("(sink " + bench.getSink() + ")");
+    }
+
+    /**
+     * An alien as the original MarsAttacksGame kept it: an object with its own position,
+     * moving itself.
+     */
+    private static final class ObjectAlien {
+        private int x, y, width, height;
+        private int speed = Alien.SPEED;
+
+        ObjectAlien(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        void update() {
+            y += speed;
+        }
+
+        Rectangle getBounds() {
+            return new Rectangle(x, y, width, height);
+        }
+
+        int getY() {
+            return y;
+        }
+    }
+
+    private static Microbench.Benchmark objectMove(List<ObjectAlien> aliens) {
+        return ops -> {
+            long sum = 0;
+            for (int done = 0; done < ops; ) {
+                int n = Math.min(aliens.size(), ops - done);
+                for (int i = 0; i < n; i++) {
+                    aliens.get(i).update();
+                }
+                sum += aliens.get(n - 1).getY();
+                done += n;
+            }
+            return sum;
+        };
+    }
+
+    // Moves the whole store through a SystemSet as a tick does, and what is left of the
+    // operations with the system itself.
+    private static Microbench.Benchmark storeMove(EntityStore aliens) {
+        SystemSet systems = new SystemSet().add(aliens, Alien.MOVEMENT);
+        return ops -> {
+            long sum = 0;
+            for (int done = 0; done < ops; ) {
+                int n = Math.min(aliens.size(), ops - done);
+                if (n == aliens.size()) {
+                    systems.run();
+                } else {
+                    Alien.MOVEMENT.update(aliens, 0, n);
+                }
+                sum += aliens.y[n - 1];
+                done += n;
+            }
+            return sum;
+        };
+    }
+
+    private static Microbench.Benchmark objectIntersect(List<ObjectAlien> aliens) {
+        Player player = new Player(MarsAttacksSim.WIDTH / 2 - 20, MarsAttacksSim.HEIGHT - 60, 40, 40);
+        return ops -> {
+            long hits = 0;
+            for (int done = 0; done < ops; ) {
+                int n = Math.min(aliens.size(), ops - done);
+                for (int i = 0; i < n; i++) {
+                    Rectangle ship = new Rectangle(player.getX(), player.getY(), player.getWidth(), player.getHeight());
+                    if (aliens.get(i).getBounds().intersects(ship)) {
+                        hits++;
+                    }
+                }
+                done += n;
+            }
+            return hits;
+        };
+    }
+
+    private static Microbench.Benchmark storeIntersect(EntityStore aliens) {
+        Player player = new Player(MarsAttacksSim.WIDTH / 2 - 20, MarsAttacksSim.HEIGHT - 60, 40, 40);
+        return ops -> {
+            long hits = 0;
+            for (int done = 0; done < ops; ) {
+                int n = Math.min(aliens.size(), ops - done);
+                for (int i = 0; i < n; i++) {
+                    if (aliens.intersects(i, player.getX(), player.getY(), player.getWidth(), player.getHeight())) {
+                        hits++;
+                    }
+                }
+                done += n;
+            }
+            return hits;
+        };
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/**
+ * The EntityStore class keeps rectangular entities (bullets, aliens) as parallel
+ * primitive arrays, one array per field, so update and collision loops walk memory
+ * linearly. Entities are addressed by index in [0, size()); remove() moves the last
+ * entity into the freed slot, so it is O(1) but does not keep the order.
+ */
+class EntityStore {
+    // Field arrays, valid up to size. They are replaced when the store grows,
+    // so read them again after calling add().
+    int[] x;
+    int[] y;
+    int[] width;
+    int[] height;
+    int[] speed;
+    private int size;
+
+    public EntityStore() {
+        this(64);
+    }
+
+    public EntityStore(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        width = new int[capacity];
+        height = new int[capacity];
+        speed = new int[capacity];
+    }
+
+    /** Adds an entity and returns its index. */
+    public int add(int x, int y, int width, int height, int speed) {
+        if (size == this.x.length) {
+            grow();
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.width[size] = width;
+        this.height[size] = height;
+        this.speed[size] = speed;
+        return size++;
+    }
+
+    /**
+     * Removes the entity at index i by moving the last entity into its place. When removing
+     * while iterating, walk the indices from the end so the moved entity was already visited.
+     */
+    public void remove(int i) {
+        int last = --size;
+        x[i] = x[last];
+        y[i] = y[last];
+        width[i] = width[last];
+        height[i] = height[last];
+        speed[i] = speed[last];
+    }
+
+    /** Removes every entity. */
+    public void clear() {
+        size = 0;
+    }
+
+    /** Replaces the contents of this store with a copy of another one. */
+    public void copyFrom(EntityStore other) {
+        clear();
+        for (int i = 0; i < other.size; i++) {
+            add(other.x[i], other.y[i], other.width[i], other.height[i], other.speed[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Folds every field of every entity into hash, for checksums of a game state. */
+    public long hash(long hash) {
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + x[i];
+            hash = 31 * hash + y[i];
+            hash = 31 * hash + width[i];
+            hash = 31 * hash + height[i];
+            hash = 31 * hash + speed[i];
+        }
+        return 31 * hash + size;
+    }
+
+    /**
+     * Writes every entity to a snapshot, one after the other, so removing or adding one
+     * leaves the others where they were.
+     */
+    public void saveState(GameState state) {
+        state.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            state.writeInt(x[i]);
+            state.writeInt(y[i]);
+            state.writeInt(width[i]);
+            state.writeInt(height[i]);
+            state.writeInt(speed[i]);
+        }
+    }
+
+    /** Replaces the contents of this store with the entities written by saveState(). */
+    public void loadState(GameState state) {
+        clear();
+        for (int i = state.readInt(); i > 0; i--) {
+            add(state.readInt(), state.readInt(), state.readInt(), state.readInt(), state.readInt());
+        }
+    }
+
+    /** Returns true if entity i overlaps the given rectangle (same test as Rectangle.intersects). */
+    public boolean intersects(int i, int rx, int ry, int rw, int rh) {
+        return intersects(x[i], y[i], width[i], height[i], rx, ry, rw, rh);
+    }
+
+    /** Same test as Rectangle.intersects, without allocating the rectangles. */
+    public static boolean intersects(int x1, int y1, int w1, int h1, int x2, int y2, int w2, int h2) {
+        return w1 > 0 && h1 > 0 && w2 > 0 && h2 > 0
+                && x1 < x2 + w2 && x2 < x1 + w1
+                && y1 < y2 + h2 && y2 < y1 + h1;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+    }
+}
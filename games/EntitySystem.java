@@ -0,0 +1,20 @@
+/**
+ * An EntitySystem updates the bullets or aliens of an EntityStore a range of indices at a
+ * time, so a SystemSet can hand it the store in contiguous chunks, or a PartitionedTick
+ * the entities of one strip of the world. A system only writes the fields of the entities
+ * it is given, which is what makes the chunks and strips independent of each other.
+ */
+interface EntitySystem {
+    /** Updates the entities of the store with indices in [from, to). */
+    void update(EntityStore store, int from, int to);
+
+    /**
+     * Updates the entities of the store whose indices are listed in ids[from, to), such as
+     * the entities in one region of the world.
+     */
+    default void update(EntityStore store, int[] ids, int from, int to) {
+        for (int k = from; k < to; k++) {
+            update(store, ids[k], ids[k] + 1);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("games.Frame")
+@Label("Game Frame")
+@Description("Drawing one frame of a game and showing it")
+class FrameEvent extends GameEvent {
+    @Label("Repainted Pixels")
+    @Description("Pixels redrawn for the frame; the whole canvas unless the game repaints incrementally")
+    long repaintedPixels;
+}
@@ -0,0 +1,474 @@
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The FrameExport class renders a game headless into PNG images, as fast as it can rather
+ * than at the game's frame rate, to review a session frame by frame or turn it into a video.
+ * Each frame is drawn by the game's own render() into one of a few pooled BufferedImages
+ * and encoded by a PngEncoder on a pool of threads, one per core by default; encoding takes
+ * far longer than drawing, so that is where the time goes.
+ *
+ * Frames are written as numbered files into a directory, frame-000000.png and on, or one
+ * after the other into a single file, which is how ffmpeg reads piped images:
+ *
+ *   > ffmpeg -f image2pipe -framerate 50 -i dino.pngs dino.mp4
+ *
+ * The pipeline is bounded. When every pooled image is waiting to be encoded, or too many
+ * encoded frames are waiting to be written, frame() blocks until there is room, so a slow
+ * disk or encoder holds the game back instead of filling the heap.
+ *
+ * From the command line it exports a recorded session, a frame after every tick or every
+ * given number of ticks, to a directory if the output is one and to a single file
+ * otherwise:
+ *
+ *   > java -cp /tmp/games FrameExport dino.log frames/ [ticks per frame [threads]]
+ *
+ * Without arguments it exports 60 seconds of random key events in every game to a
+ * temporary file and reports how much faster than real time that ran.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java Replay.java FrameExport.java
+ *   jshell> FrameExport.main(null)
+ */
+public class FrameExport implements Closeable {
+
+    private static final String[] GAMES = {"SnakeGame", "DinoGame", "MarsAttacksGame"};
+    private static final int[] KEYS = {KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_UP, KeyEvent.VK_DOWN,
+                                       KeyEvent.VK_SPACE, KeyEvent.VK_R};
+    private static final int EXPORT_SECONDS = 60;
+
+    // An image of the pool, with the graphics that draw into it, the encoder that encodes
+    // it and the frame it holds.
+    private static final class Frame {
+        final BufferedImage image;
+        final Graphics2D graphics;
+        final PngEncoder encoder = new PngEncoder();
+        long number;
+
+        Frame(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            graphics = image.createGraphics();
+        }
+    }
+
+    private final GameLoop.Game game;
+    private final Path directory;
+    private final OutputStream stream;
+    private final ExecutorService encoders;
+
+    // Images free to draw into; encoders put them back once a frame is encoded.
+    private final BlockingQueue<Frame> free;
+    // Frames handed to the encoders, in order, which the stream is written from.
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final int maxPending;
+
+    private long frames;
+    private long bytes;
+    private long waitNanos;
+
+    /**
+     * Creates an export of the game's frames of the given size to output, numbered files if
+     * it is a directory and a single file otherwise, encoded on the given number of threads.
+     */
+    public FrameExport(GameLoop.Game game, int width, int height, Path output, int threads) throws IOException {
+        this.game = game;
+        if (Files.isDirectory(output)) {
+            directory = output;
+            stream = null;
+        } else {
+            directory = null;
+            stream = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16);
+        }
+        encoders = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "FrameExport encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Two images per encoder let the game draw the next frame while all of them work.
+        free = new ArrayBlockingQueue<>(2 * threads);
+        for (int i = 0; i < 2 * threads; i++) {
+            free.add(new Frame(width, height));
+        }
+        maxPending = 4 * threads;
+    }
+
+    /**
+     * Renders the current state of the game as the next frame and hands it to the encoders,
+     * waiting if the pipeline is full.
+     */
+    public void frame() throws IOException {
+        while (pending.size() >= maxPending || !pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeOldest();
+        }
+        Frame frame = free.poll();
+        if (frame == null) {
+            long start = System.nanoTime();
+            try {
+                frame = free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for an encoder");
+            }
+            waitNanos += System.nanoTime() - start;
+        }
+        game.render(frame.graphics);
+        frame.number = frames++;
+        Frame drawn = frame;
+        pending.add(encoders.submit(() -> encode(drawn)));
+    }
+
+    /** Writes the frames still being encoded and closes the output. */
+    @Override
+    public void close() throws IOException {
+        try {
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            encoders.shutdownNow();
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+
+    /** Returns the number of frames rendered so far. */
+    public long getFrames() {
+        return frames;
+    }
+
+    /** Returns the number of bytes of PNG written so far. */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** Returns the time frame() spent waiting for the encoders. */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    // Encodes a frame, puts its image back in the pool and writes it to its file if the
+    // frames go to a directory. Runs on an encoder thread.
+    private byte[] encode(Frame frame) throws IOException {
+        long number = frame.number;
+        byte[] encoded;
+        try {
+            encoded = frame.encoder.encode(frame.image);
+        } finally {
+            free.add(frame);
+        }
+        if (directory != null) {
+            Files.write(directory.resolve(String.format("frame-%06d.png", number)), encoded);
+        }
+        return encoded;
+    }
+
+    // Waits for the oldest frame handed to the encoders and writes it to the stream.
+    private void writeOldest() throws IOException {
+        byte[] encoded;
+        try {
+            encoded = pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an encoder");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Encoding a frame failed", e.getCause());
+        }
+        if (stream != null) {
+            stream.write(encoded);
+        }
+        bytes += encoded.length;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args != null && args.length > 1) {
+            int ticksPerFrame = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+            int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            exportLog(Path.of(args[0]), Path.of(args[1]), ticksPerFrame, threads);
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < GAMES.length; i++) {
+            InputLog.Replayable game = Replay.create(GAMES[i]);
+            Path file = Files.createTempFile(GAMES[i], ".pngs");
+            try {
+                long ticks = EXPORT_SECONDS * 1000L / getTickMillis(GAMES[i]);
+                Random random = new Random(i + 1);
+                long start = System.nanoTime();
+                FrameExport export = create(game, file, threads);
+                try {
+                    game.newSession(i + 1);
+                    export.frame();
+                    for (long t = 0; t < ticks; t++) {
+                        if (random.nextInt(8) == 0) {
+                            game.input(KEYS[random.nextInt(KEYS.length)], random.nextInt(3) != 0);
+                        }
+                        game.tick();
+                        export.frame();
+                    }
+                } finally {
+                    export.close();
+                }
+                report(GAMES[i], game, export, System.nanoTime() - start, threads);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Exports the frames of a recorded session, one after every ticksPerFrame ticks.
+    private static void exportLog(Path log, Path output, int ticksPerFrame, int threads) throws IOException {
+        InputLog input = new InputLog(log);
+        InputLog.Replayable game = Replay.create(input.getGame());
+        long start = System.nanoTime();
+        FrameExport export = create(game, output, threads);
+        try {
+            game.newSession(input.getSeed());
+            export.frame();
+            while (input.next()) {
+                while (game.getSessionTicks() < input.getTick()) {
+                    game.tick();
+                    if (game.getSessionTicks() % ticksPerFrame == 0) {
+                        export.frame();
+                    }
+                }
+                if (!input.isEnd()) {
+                    game.input(input.getKeyCode(), input.isPressed());
+                }
+            }
+        } finally {
+            export.close();
+        }
+        report(input.getGame(), game, export, System.nanoTime() - start, threads);
+    }
+
+    // Creates an export of the frames of a game panel, at the size of its window.
+    private static FrameExport create(InputLog.Replayable game, Path output, int threads) throws IOException {
+        Dimension size = ((Component) game).getPreferredSize();
+        return new FrameExport(game, size.width, size.height, output, threads);
+    }
+
+    private static void report(String name, InputLog.Replayable game, FrameExport export, long elapsed, int threads) {
+        double played = game.getSessionTicks() * getTickMillis(name) / 1000.0;
+        System.out.printf("%-16s %,8d frames %,12d bytes %9.1f ms %,8.0f frames/s  %.1f s of play, %.1fx real time on %d threads, waited %.1f ms for encoders%n",
+                          name, export.getFrames(), export.getBytes(), elapsed / 1e6,
+                          export.getFrames() / (elapsed / 1e9), played, played / (elapsed / 1e9), threads,
+                          export.getWaitNanos() / 1e6);
+    }
+
+    // The length of a tick of the game, as its window runs it: Snake ticks every 75 ms, Dino
+    // and Mars Attacks every 20.
+    private static int getTickMillis(String game) {
+        return game.startsWith("SnakeGame") ? 75 : 20;
+    }
+}
+
+/**
+ * The PngEncoder class writes TYPE_INT_RGB images as PNG files, several times faster than
+ * ImageIO does for frames of these games. Their frames have a handful of flat colors, so an
+ * image with at most 256 colors is written with a palette, a byte per pixel, which leaves
+ * a third of the data to compress; other images are written as RGB. Rows are not filtered
+ * and zlib runs at its fastest level, which still shrinks a frame to a few kilobytes.
+ *
+ * An encoder keeps its buffers from one image to the next, so it is for one thread at a
+ * time.
+ */
+class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_RGB = 2;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+
+    // The colors of the palette, and an open-addressing table from color to palette index.
+    private final int[] palette = new int[256];
+    private final int[] tableColors = new int[1024];
+    private final int[] tableIndices = new int[1024];
+    private int colors;
+
+    // The rows of pixels as PNG compresses them, each behind its filter byte.
+    private byte[] raw = new byte[0];
+    private int rawSize;
+
+    private byte[] out = new byte[1 << 16];
+    private int size;
+
+    /** Returns the image as a PNG file. */
+    public byte[] encode(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("Only TYPE_INT_RGB images can be encoded, not type " + image.getType());
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        boolean indexed = index(pixels, width, height);
+        if (!indexed) {
+            rgb(pixels, width, height);
+        }
+
+        size = 0;
+        ensure(SIGNATURE.length);
+        System.arraycopy(SIGNATURE, 0, out, 0, SIGNATURE.length);
+        size = SIGNATURE.length;
+
+        int chunk = beginChunk(IHDR);
+        writeInt(width);
+        writeInt(height);
+        writeByte(8);
+        writeByte(indexed ? COLOR_PALETTE : COLOR_RGB);
+        writeByte(0);
+        writeByte(0);
+        writeByte(0);
+        endChunk(chunk);
+
+        if (indexed) {
+            chunk = beginChunk(PLTE);
+            for (int i = 0; i < colors; i++) {
+                writeByte(palette[i] >> 16);
+                writeByte(palette[i] >> 8);
+                writeByte(palette[i]);
+            }
+            endChunk(chunk);
+        }
+
+        chunk = beginChunk(IDAT);
+        deflater.reset();
+        deflater.setInput(raw, 0, rawSize);
+        deflater.finish();
+        while (!deflater.finished()) {
+            ensure(1 << 16);
+            size += deflater.deflate(out, size, out.length - size);
+        }
+        endChunk(chunk);
+
+        endChunk(beginChunk(IEND));
+        return Arrays.copyOf(out, size);
+    }
+
+    // Writes the rows as palette indices if the image has at most 256 colors, and returns
+    // whether it has.
+    private boolean index(int[] pixels, int width, int height) {
+        Arrays.fill(tableIndices, -1);
+        colors = 0;
+        grow(height * (1 + width));
+        int k = 0;
+        // Runs of one color are common, so the last lookup is remembered.
+        int last = -1;
+        byte lastIndex = 0;
+        for (int y = 0; y < height; y++) {
+            raw[k++] = 0;
+            for (int i = y * width, end = i + width; i < end; i++) {
+                int color = pixels[i] & 0xFFFFFF;
+                if (color != last) {
+                    int slot = color * 0x9E3779B1 >>> 22;
+                    while (tableIndices[slot] >= 0 && tableColors[slot] != color) {
+                        slot = slot + 1 & tableColors.length - 1;
+                    }
+                    if (tableIndices[slot] < 0) {
+                        if (colors == palette.length) {
+                            return false;
+                        }
+                        tableColors[slot] = color;
+                        tableIndices[slot] = colors;
+                        palette[colors++] = color;
+                    }
+                    last = color;
+                    lastIndex = (byte) tableIndices[slot];
+                }
+                raw[k++] = lastIndex;
+            }
+        }
+        rawSize = k;
+        return true;
+    }
+
+    // Writes the rows as RGB.
+    private void rgb(int[] pixels, int width, int height) {
+        grow(height * (1 + 3 * width));
+        int k = 0;
+        for (int y = 0; y < height; y++) {
+            raw[k++] = 0;
+            for (int i = y * width, end = i + width; i < end; i++) {
+                int color = pixels[i];
+                raw[k++] = (byte) (color >> 16);
+                raw[k++] = (byte) (color >> 8);
+                raw[k++] = (byte) color;
+            }
+        }
+        rawSize = k;
+    }
+
+    private void grow(int length) {
+        if (raw.length < length) {
+            raw = new byte[length];
+        }
+    }
+
+    // Starts a chunk of the given type and returns where it starts, for endChunk().
+    private int beginChunk(int type) {
+        int start = size;
+        writeInt(0);
+        writeInt(type);
+        return start;
+    }
+
+    // Fills in the length of the chunk that starts at start and appends its CRC.
+    private void endChunk(int start) {
+        int length = size - start - 8;
+        out[start] = (byte) (length >>> 24);
+        out[start + 1] = (byte) (length >>> 16);
+        out[start + 2] = (byte) (length >>> 8);
+        out[start + 3] = (byte) length;
+        crc.reset();
+        crc.update(out, start + 4, length + 4);
+        writeInt((int) crc.getValue());
+    }
+
+    private void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        out[size++] = (byte) value;
+    }
+
+    // Makes room for at least the given number of bytes more.
+    private void ensure(int bytes) {
+        if (out.length - size < bytes) {
+            out = Arrays.copyOf(out, Math.max(2 * out.length, size + bytes));
+        }
+    }
+}
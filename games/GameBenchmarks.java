@@ -0,0 +1,217 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Baseline benchmarks for the hot paths of every game, run with Microbench: the tick of
+ * each simulation, the decisions of the Snake autopilot on a small and a huge board (ops/s
+ * is decisions per second), the MarsAttacks tick at several entity counts, and the render of each
+ * GamePanel into an offscreen BufferedImage, Snake also on a 10,000 x 10,000 board. Every line reports the time and the bytes
+ * allocated per operation, so regressions in either show up.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java Microbench.java GameBenchmarks.java
+ *   jshell> GameBenchmarks.main(null)
+ *
+ * An optional argument sets the length of each iteration in milliseconds (default 1000).
+ * The same benchmarks also run on JMH with its GC profiler, from the module in benchmarks/.
+ */
+public class GameBenchmarks {
+
+    /**
+     * The benchmarks in the order main runs them, by the names the JMH module in benchmarks/
+     * runs them by too.
+     */
+    static final String[] NAMES = {
+        "SnakeSim.tick", "SnakeAutopilot.decide:24x24", "SnakeAutopilot.decide:1000x1000", "DinoSim.tick",
+        "MarsAttacksSim.restore:10", "MarsAttacksSim.tick:10", "MarsAttacksSim.restore:100", "MarsAttacksSim.tick:100",
+        "MarsAttacksSim.restore:1000", "MarsAttacksSim.tick:1000", "SnakeGame.GamePanel.render",
+        "SnakeGame.GamePanel.render:10000x10000", "DinoGame.GamePanel.render", "MarsAttacksGame.GamePanel.render"};
+
+    public static void main(String[] args) {
+        long iterationMillis = args != null && args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        Microbench bench = new Microbench(3, 5, iterationMillis);
+        bench.printHeader();
+        for (String name : NAMES) {
+            bench.run(name, benchmark(name));
+        }
+        System.out.println("(sink " + bench.getSink() + ")");
+    }
+
+    /**
+     * Returns the operation of the benchmark of the given name, set up afresh, which runs it
+     * the given number of times. The JMH module calls this, as it cannot name classes of the
+     * default package.
+     */
+    public static IntToLongFunction operation(String name) {
+        return benchmark(name)::run;
+    }
+
+    // Sets up the benchmark of the given name.
+    private static Microbench.Benchmark benchmark(String name) {
+        switch (name) {
+            case "SnakeSim.tick":
+                return snakeTick();
+            case "SnakeAutopilot.decide:24x24":
+                return snakeAutopilot(24);
+            case "SnakeAutopilot.decide:1000x1000":
+                return snakeAutopilot(1000);
+            case "DinoSim.tick":
+                return dinoTick();
+            // Restoring the entities is part of every operation, so it is measured on its own too.
+            case "MarsAttacksSim.restore:10":
+                return marsTick(10, false);
+            case "MarsAttacksSim.tick:10":
+                return marsTick(10, true);
+            case "MarsAttacksSim.restore:100":
+                return marsTick(100, false);
+            case "MarsAttacksSim.tick:100":
+                return marsTick(100, true);
+            case "MarsAttacksSim.restore:1000":
+                return marsTick(1000, false);
+            case "MarsAttacksSim.tick:1000":
+                return marsTick(1000, true);
+            case "SnakeGame.GamePanel.render":
+                return snakeRender(24);
+            case "SnakeGame.GamePanel.render:10000x10000":
+                return snakeRender(10_000);
+            case "DinoGame.GamePanel.render":
+                return dinoRender();
+            case "MarsAttacksGame.GamePanel.render":
+                return marsRender();
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + name + ", not one of " + String.join(", ", NAMES));
+        }
+    }
+
+    // Random moves on the classic 24x24 board, starting a new game after every death.
+    private static Microbench.Benchmark snakeTick() {
+        SnakeSim sim = new SnakeSim(24, 24);
+        char[] directions = {SnakeSim.UP, SnakeSim.DOWN, SnakeSim.LEFT, SnakeSim.RIGHT};
+        Random random = new Random(1);
+        sim.reset(0);
+        return ops -> {
+            long result = 0;
+            for (int i = 0; i < ops; i++) {
+                if (!sim.isRunning()) {
+                    sim.reset(random.nextLong());
+                }
+                result += sim.step(directions[random.nextInt(4)]);
+            }
+            return result;
+        };
+    }
+
+    // The autopilot playing on its own; one operation is one decision and the tick it steers.
+    private static Microbench.Benchmark snakeAutopilot(int size) {
+        SnakeSim sim = new SnakeSim(size, size);
+        SnakeAutopilot autopilot = new SnakeAutopilot(sim);
+        long[] seed = {0};
+        sim.reset(0);
+        return ops -> {
+            for (int i = 0; i < ops; i++) {
+                if (!sim.isRunning()) {
+                    sim.reset(++seed[0]);
+                }
+                sim.step(autopilot.decide());
+            }
+            return sim.getApplesEaten();
+        };
+    }
+
+    private static Microbench.Benchmark dinoTick() {
+        DinoSim sim = new DinoSim();
+        Random random = new Random(2);
+        sim.reset(0);
+        return ops -> {
+            for (int i = 0; i < ops; i++) {
+                if (sim.isGameOver()) {
+                    sim.reset(random.nextLong());
+                }
+                if (random.nextInt(30) == 0) {
+                    sim.jump();
+                }
+                sim.tick();
+            }
+            return sim.getTicks();
+        };
+    }
+
+    /**
+     * Ticks a game holding the given number of aliens and as many bullets, scattered over
+     * the upper part of the world. A tick moves and removes entities, so the same entities
+     * are copied back in before every tick; with tick false only that copy is measured.
+     */
+    private static Microbench.Benchmark marsTick(int entities, boolean tick) {
+        Random random = new Random(entities);
+        EntityStore aliens = new EntityStore();
+        EntityStore bullets = new EntityStore();
+        int top = MarsAttacksSim.HEIGHT - 200 - Alien.HEIGHT;
+        for (int i = 0; i < entities; i++) {
+            Alien.spawn(aliens, random.nextInt(MarsAttacksSim.WIDTH - Alien.WIDTH), random.nextInt(top));
+            Bullet.spawn(bullets, random.nextInt(MarsAttacksSim.WIDTH - Bullet.WIDTH), random.nextInt(top));
+        }
+        MarsAttacksSim sim = new MarsAttacksSim();
+        sim.reset(0);
+        return ops -> {
+            for (int i = 0; i < ops; i++) {
+                sim.getAliens().copyFrom(aliens);
+                sim.getBullets().copyFrom(bullets);
+                if (tick) {
+                    sim.tick();
+                }
+            }
+            return sim.getScore() + sim.getAliens().size();
+        };
+    }
+
+    // Renders a game that has been played for a while, with the snake part way along; on a
+    // large board it is far from the corner, and the view follows it.
+    private static Microbench.Benchmark snakeRender(int size) {
+        SnakeGame.GamePanel panel = new SnakeGame.GamePanel(size, size);
+        SnakeSim sim = panel.getSim();
+        sim.reset(3);
+        for (int i = 0; i < 10 + size / 2; i++) {
+            sim.step(i < 10 || i % 2 == 0 ? SnakeSim.RIGHT : SnakeSim.DOWN);
+        }
+        return render(panel, 600, 600);
+    }
+
+    private static Microbench.Benchmark dinoRender() {
+        DinoGame.GamePanel panel = new DinoGame.GamePanel();
+        DinoSim sim = panel.getSim();
+        sim.reset(4);
+        // Jump as needed, so the frame shows cacti rather than the game over message.
+        for (int i = 0; i < 400 && !sim.isGameOver(); i++) {
+            if (i % 40 == 0) {
+                sim.jump();
+            }
+            sim.tick();
+        }
+        return render(panel, DinoSim.WIDTH, DinoSim.HEIGHT);
+    }
+
+    private static Microbench.Benchmark marsRender() {
+        MarsAttacksGame.GamePanel panel = new MarsAttacksGame.GamePanel();
+        MarsAttacksSim sim = panel.getSim();
+        sim.reset(5);
+        for (int i = 0; i < 300 && !sim.isGameOver(); i++) {
+            if (i % 5 == 0) {
+                sim.fire();
+            }
+            sim.tick();
+        }
+        return render(panel, MarsAttacksSim.WIDTH, MarsAttacksSim.HEIGHT);
+    }
+
+    private static Microbench.Benchmark render(GameLoop.Game panel, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        return ops -> {
+            for (int i = 0; i < ops; i++) {
+                panel.render(g);
+            }
+            return image.getRGB(width / 2, height / 2);
+        };
+    }
+}
@@ -0,0 +1,116 @@
+import java.awt.Canvas;
+import java.awt.Graphics;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+/**
+ * The GameCanvas class is what the panels of all three games share: a Canvas rendered
+ * actively by a GameLoop, which also ticks the game; key events queued on the event
+ * dispatch thread and applied at the start of the next tick; and the session those ticks
+ * and keys make up, which can be recorded (InputRecorder). A game supplies the step of a
+ * tick, what its keys do, how it is drawn, and its state.
+ */
+abstract class GameCanvas extends Canvas implements GameLoop.IncrementalGame, InputLog.Replayable, KeyListener {
+    private static final long serialVersionUID = 1L;
+
+    private final GameLoop loop;
+
+    // Ticks since the session started; the game sets it back when it starts or loads one.
+    protected long sessionTicks;
+    // Where the key events of the session go when it is recorded.
+    private InputRecorder recorder;
+
+    // Key events on their way from the event dispatch thread to the next tick.
+    private final InputQueue inputs = new InputQueue(64);
+    private final InputQueue.Handler applyInput = this::applyInput;
+
+    /** Creates a canvas ticking every tickMillis milliseconds, taking the keys when focused. */
+    protected GameCanvas(int tickMillis) {
+        loop = new GameLoop(this, this, tickMillis * 1_000_000L, GameLoop.displayFrameNanos());
+        setFocusable(true);
+        addKeyListener(this);
+    }
+
+    /** Returns the name the game is recorded and reported under. */
+    abstract String getGameName();
+
+    /** Advances the game by one tick, after the key events queued for it are applied. */
+    protected abstract void step();
+
+    /** Starts the game loop as soon as the canvas can be rendered to. */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        loop.start();
+    }
+
+    /** Asks the game loop to redraw everything when AWT wants the canvas repainted. */
+    @Override
+    public void paint(Graphics g) {
+        loop.repaintAll();
+    }
+
+    /** Skips the background clear of Canvas.update; the game loop draws every pixel. */
+    @Override
+    public void update(Graphics g) {
+        paint(g);
+    }
+
+    /**
+     * Stops the game loop, finishes the input log if recording and prints the tick jitter
+     * and input latency.
+     */
+    public void stopGame() {
+        loop.stop();
+        synchronized (this) {
+            if (recorder != null) {
+                recorder.finish(sessionTicks, checksum());
+                recorder = null;
+            }
+        }
+        System.out.println(getGameName() + " " + loop.report() + ", input latency: " + inputs.getLatencies().summary());
+    }
+
+    /** Starts a session from the command line arguments [seed [log file]], if any. */
+    synchronized void startSession(String[] args) {
+        recorder = InputRecorder.start(this, getGameName(), args);
+    }
+
+    /** Applies the key events queued since the last tick, then steps the game; called by the game loop. */
+    @Override
+    public final void tick() {
+        inputs.drain(applyInput);
+        sessionTicks++;
+        step();
+    }
+
+    @Override
+    public long getSessionTicks() {
+        return sessionTicks;
+    }
+
+    // Applies a queued key event at the start of a tick, which is also where a replay applies it.
+    private void applyInput(int keyCode, boolean pressed) {
+        if (input(keyCode, pressed) && recorder != null) {
+            recorder.record(sessionTicks, keyCode, pressed);
+        }
+    }
+
+    // Key events arrive on the event dispatch thread while the loop ticks on its own, so
+    // they are only queued for the next tick; input() decides which of them do anything.
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        inputs.offer(e.getKeyCode(), true);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        inputs.offer(e.getKeyCode(), false);
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // Not used.
+    }
+}
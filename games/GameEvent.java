@@ -0,0 +1,37 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The GameEvent class is the base of the JDK Flight Recorder events the GameLoop emits for
+ * every tick and every frame. The duration of an event is the time the tick or frame took,
+ * waiting for the game's monitor included, so a recording shows whether a stutter came from
+ * updating, painting, the garbage collector (from JFR's own GC events) or another thread
+ * holding the game, such as one starting a session. The game fills in the entity counts
+ * that apply to it; the others stay 0.
+ *
+ *   > java -XX:StartFlightRecording=filename=games.jfr ...
+ *   > jfr print --events games.Tick,games.Frame games.jfr
+ */
+@Category("Games")
+abstract class GameEvent extends Event {
+    @Label("Game")
+    String game;
+
+    @Label("Tick")
+    @Description("Number of ticks of the current game so far")
+    long tick;
+
+    @Label("Snake Body Parts")
+    int bodyParts;
+
+    @Label("Cacti")
+    int cacti;
+
+    @Label("Bullets")
+    int bullets;
+
+    @Label("Aliens")
+    int aliens;
+}
@@ -0,0 +1,421 @@
+import java.awt.Canvas;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The GameLoop class drives a game from its own thread with a fixed simulation timestep.
+ * Elapsed time is added to an accumulator and the game ticks once per full timestep, so
+ * ticks keep to their schedule instead of drifting like javax.swing.Timer events. If the
+ * loop falls behind it catches up with at most MAX_CATCH_UP_TICKS ticks in a row and drops
+ * the rest of the backlog. Frames are rendered actively at their own rate, independent of
+ * the tick rate.
+ *
+ * Frames usually come faster than ticks, so before each one the game is told how far the
+ * clock is between the last tick and the next, and can draw its moving parts that far
+ * between where the tick before left them and where the last tick put them. Motion then
+ * looks as smooth as the display allows without ticking more often.
+ *
+ * A game rendered into a canvas is an IncrementalGame: its frames are kept in a back buffer
+ * of the loop's own, only the regions the game reports as changed are redrawn into it, and
+ * only those regions are copied to the screen. That saves fill rate and bandwidth on
+ * software rendered and remote displays, where a full frame is expensive to push. A plain
+ * Game can only run without a canvas, where the loop just ticks it.
+ *
+ * The loop holds the game's monitor while ticking and rendering. Key handlers on the event
+ * dispatch thread do not take it and do not touch the game: they put the key into an
+ * InputQueue, which the game drains on the loop thread at the start of its next tick. Only
+ * what runs on another thread outside the loop, such as starting or ending a session,
+ * synchronizes on the game.
+ *
+ * Every tick and frame is timed: while JDK Flight Recorder records them, the loop emits a
+ * TickEvent or FrameEvent (and allocates nothing for them otherwise), and F3 toggles a
+ * PerfOverlay with the recent tick and frame times. With the system property
+ * games.exitAfterFirstFrame set, the loop prints FIRST_FRAME and exits the JVM as soon as
+ * a frame has reached the screen, which StartupBenchmark times.
+ */
+class GameLoop implements Runnable {
+
+    /** A game that can be driven by the loop. */
+    interface Game {
+        /** Advances the game by one fixed timestep. */
+        void tick();
+
+        /** Draws the current state of the game. */
+        void render(Graphics2D g);
+
+        /**
+         * Sets how far between its last two ticks the next frame draws the game, from 0 for
+         * the tick before to 1 for the last tick, which is also what it draws until this is
+         * called. Games that always draw their last tick ignore it.
+         */
+        default void setInterpolation(float alpha) {
+        }
+
+        /** Fills in the name, tick and entity counts of a flight recorder event. */
+        default void describe(GameEvent event) {
+        }
+    }
+
+    /** A game that can tell which parts of its frame changed, so only those are redrawn. */
+    interface IncrementalGame extends Game {
+        /**
+         * Adds every region that looks different from the previous frame to dirty. The
+         * game should keep whatever it compares against up to date even when the loop
+         * redraws the whole frame anyway.
+         */
+        void collectDirty(DirtyRegion dirty);
+    }
+
+    /** The line printed after the first frame with games.exitAfterFirstFrame set. */
+    public static final String FIRST_FRAME = "First frame";
+    private static final boolean EXIT_AFTER_FIRST_FRAME = Boolean.getBoolean("games.exitAfterFirstFrame");
+
+    // Default frame length: render at about 60 frames per second.
+    public static final long DEFAULT_FRAME_NANOS = 1_000_000_000L / 60;
+
+    // Ticks run back to back when catching up before the rest of the backlog is dropped.
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    // Longer pauses (a debugger, a suspended laptop) only count as this much elapsed time.
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+
+    private final Game game;
+    private final Canvas canvas;
+    // The game as rendered into the canvas, null without one.
+    private final IncrementalGame incremental;
+    private final long tickNanos;
+    private final long frameNanos;
+
+    // How late each tick ran compared to its slot in the fixed schedule.
+    private final Histogram tickLateness = new Histogram();
+    private long droppedTicks;
+    private final PerfOverlay overlay = new PerfOverlay();
+    // Never committed: they only tell whether a recording wants the events, so that a tick
+    // or frame allocates its event only while the flight recorder is recording them.
+    private final TickEvent tickEvents = new TickEvent();
+    private final FrameEvent frameEvents = new FrameEvent();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    // Back buffer and changed regions of the game, and the canvas's graphics that they are
+    // copied to, all replaced together when the canvas changes size or screen.
+    private VolatileImage back;
+    private DirtyRegion dirty;
+    private Graphics screen;
+    private volatile boolean repaintAll = true;
+    private long paintedPixels;
+    private long framePixels;
+
+    /**
+     * Creates a loop ticking every tickNanos and rendering into the canvas at most every
+     * frameNanos (0 renders after every pass of the loop). With a null canvas the loop
+     * only ticks, which is useful headless.
+     *
+     * @throws IllegalArgumentException if there is a canvas and the game is not an IncrementalGame
+     */
+    public GameLoop(Game game, Canvas canvas, long tickNanos, long frameNanos) {
+        if (canvas != null && !(game instanceof IncrementalGame)) {
+            throw new IllegalArgumentException("Only an IncrementalGame can be rendered into a canvas, not " + game);
+        }
+        this.game = game;
+        this.canvas = canvas;
+        this.incremental = canvas == null ? null : (IncrementalGame) game;
+        this.tickNanos = tickNanos;
+        this.frameNanos = frameNanos;
+    }
+
+    /**
+     * Returns the frame length for the games' windows: that of the screen's refresh rate,
+     * or DEFAULT_FRAME_NANOS if it is not known. The system property games.fps caps the
+     * frame rate instead (for example -Dgames.fps=60); 0 renders as often as the loop can.
+     */
+    public static long displayFrameNanos() {
+        int fps = Integer.getInteger("games.fps", -1);
+        if (fps >= 0) {
+            return fps == 0 ? 0 : 1_000_000_000L / fps;
+        }
+        if (!GraphicsEnvironment.isHeadless()) {
+            DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+            if (mode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return 1_000_000_000L / mode.getRefreshRate();
+            }
+        }
+        return DEFAULT_FRAME_NANOS;
+    }
+
+    /**
+     * Renders a frame of the game into an image of the given size and exits like the loop
+     * does after its first frame with games.exitAfterFirstFrame set. Without a screen,
+     * StartupBenchmark times this instead of the first frame of a window.
+     */
+    public static void renderFirstFrame(Game game, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            synchronized (game) {
+                game.render(g);
+            }
+        } finally {
+            g.dispose();
+        }
+        exitAfterFirstFrame();
+    }
+
+    // Reports the first frame on standard output, where StartupBenchmark waits for it.
+    private static void exitAfterFirstFrame() {
+        System.out.println(FIRST_FRAME);
+        System.out.flush();
+        System.exit(0);
+    }
+
+    /** Starts the loop thread. The canvas must already be displayable. */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        // The canvas keeps receiving AWT repaints, which should call repaintAll() because
+        // only the loop knows what the whole frame looks like.
+        if (canvas != null) {
+            canvas.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyPressed(KeyEvent e) {
+                    if (e.getKeyCode() == KeyEvent.VK_F3) {
+                        overlay.toggle();
+                        repaintAll();
+                    }
+                }
+            });
+        }
+        running = true;
+        thread = new Thread(this, "GameLoop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops the loop and waits for its thread to finish. */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+        if (screen != null) {
+            screen.dispose();
+            screen = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long nextFrame = previous;
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += Math.min(now - previous, MAX_FRAME_NANOS);
+            previous = now;
+
+            // Run every tick that is due, each one at its slot in the schedule.
+            int ticks = 0;
+            while (accumulator >= tickNanos && ticks < MAX_CATCH_UP_TICKS) {
+                accumulator -= tickNanos;
+                tickLateness.record(accumulator);
+                tick();
+                ticks++;
+            }
+            if (accumulator >= tickNanos) {
+                droppedTicks += accumulator / tickNanos;
+                accumulator %= tickNanos;
+            }
+
+            now = System.nanoTime();
+            if (canvas != null && now - nextFrame >= 0) {
+                float alpha = Math.min(1f, (float) (accumulator + now - previous) / tickNanos);
+                long repaintedPixels = renderFrame(alpha);
+                if (EXIT_AFTER_FIRST_FRAME && repaintedPixels > 0) {
+                    exitAfterFirstFrame();
+                }
+                nextFrame = Math.max(nextFrame + frameNanos, now);
+                long end = System.nanoTime();
+                overlay.recordFrame(end - now, end);
+                now = end;
+            }
+
+            // Sleep until the next tick or frame is due, whichever comes first.
+            long untilTick = tickNanos - accumulator - (now - previous);
+            long wait = canvas == null ? untilTick : Math.min(untilTick, nextFrame - now);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * Ticks the game once like the loop does, timing the tick with the wait for the game's
+     * monitor included. Called by the loop thread, or by a check driving the loop by hand.
+     */
+    void tick() {
+        long start = System.nanoTime();
+        if (tickEvents.isEnabled()) {
+            TickEvent event = new TickEvent();
+            event.begin();
+            synchronized (game) {
+                game.tick();
+                event.end();
+                if (event.shouldCommit()) {
+                    game.describe(event);
+                    event.commit();
+                }
+            }
+        } else {
+            synchronized (game) {
+                game.tick();
+            }
+        }
+        long end = System.nanoTime();
+        overlay.recordTick(end - start, end);
+    }
+
+    /**
+     * Renders a frame like the loop does, drawing the game alpha of the way between its
+     * last two ticks; returns the number of pixels redrawn, 0 while the canvas cannot be
+     * drawn to.
+     */
+    long renderFrame(float alpha) {
+        if (!frameEvents.isEnabled()) {
+            return renderDirty(alpha);
+        }
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        event.repaintedPixels = renderDirty(alpha);
+        event.end();
+        if (event.shouldCommit()) {
+            synchronized (game) {
+                game.describe(event);
+            }
+            event.commit();
+        }
+        return event.repaintedPixels;
+    }
+
+    // Redraws the changed regions of the back buffer and copies just those to the screen;
+    // returns the number of pixels redrawn.
+    private long renderDirty(float alpha) {
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        GraphicsConfiguration config = canvas.getGraphicsConfiguration();
+        if (width <= 0 || height <= 0 || config == null) {
+            return 0;
+        }
+        int status = back == null || back.getWidth() != width || back.getHeight() != height
+                ? VolatileImage.IMAGE_INCOMPATIBLE : back.validate(config);
+        if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+            if (back != null) {
+                back.flush();
+            }
+            if (screen != null) {
+                screen.dispose();
+                screen = null;
+            }
+            back = config.createCompatibleVolatileImage(width, height);
+            dirty = new DirtyRegion(width, height);
+            repaintAll = true;
+        } else if (status == VolatileImage.IMAGE_RESTORED) {
+            repaintAll = true;
+        }
+
+        int overlayY = height - overlay.getHeight();
+        Graphics2D g = back.createGraphics();
+        try {
+            synchronized (game) {
+                game.setInterpolation(alpha);
+                incremental.collectDirty(dirty);
+                if (repaintAll) {
+                    repaintAll = false;
+                    dirty.addAll();
+                }
+                // The overlay changes every frame; hiding it repaints everything instead.
+                if (overlay.isVisible()) {
+                    dirty.add(0, overlayY, overlay.getWidth(), overlay.getHeight());
+                }
+                drawDirty(game, dirty, g);
+            }
+            if (overlay.isVisible()) {
+                overlay.draw(g, 0, overlayY, System.nanoTime());
+            }
+        } finally {
+            g.dispose();
+        }
+        if (back.contentsLost()) {
+            // Nothing trustworthy to copy; draw everything again next frame.
+            repaintAll = true;
+        } else if (dirty.size() > 0) {
+            if (screen == null) {
+                screen = canvas.getGraphics();
+            }
+            if (screen != null) {
+                dirty.copy(back, screen);
+                Toolkit.getDefaultToolkit().sync();
+            }
+        }
+        long area = dirty.getArea();
+        paintedPixels += area;
+        framePixels += (long) width * height;
+        dirty.clear();
+        return area;
+    }
+
+    /** Lets the game draw every rectangle of the region into g, clipped to that rectangle. */
+    static void drawDirty(Game game, DirtyRegion dirty, Graphics2D g) {
+        for (int i = 0; i < dirty.size(); i++) {
+            dirty.clip(g, i);
+            game.render(g);
+        }
+        g.setClip(null);
+    }
+
+    /**
+     * Makes the next frame of an IncrementalGame redraw everything, for example because
+     * the canvas was exposed. Safe to call from any thread.
+     */
+    public void repaintAll() {
+        repaintAll = true;
+    }
+
+    /** Returns how late each tick ran compared to the fixed schedule. */
+    public Histogram getTickLateness() {
+        return tickLateness;
+    }
+
+    /** Returns the overlay with the recent tick and frame times. */
+    public PerfOverlay getOverlay() {
+        return overlay;
+    }
+
+    /** Returns the number of ticks skipped because the loop fell too far behind. */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /** Formats the measured tick jitter. */
+    public String report() {
+        String report = "tick lateness: " + tickLateness.summary() + ", dropped ticks: " + droppedTicks;
+        if (framePixels > 0) {
+            report += String.format(", repainted %.1f%% of the pixels", 100.0 * paintedPixels / framePixels);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,76 @@
+import java.awt.Graphics2D;
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures tick jitter: how late each tick of a DinoSim runs compared to a fixed schedule
+ * (start + n * tick length), once driven by a javax.swing.Timer as the games used to be and
+ * once by a headless GameLoop. A timer that drifts shows up as lateness growing over the run.
+ *
+ *   > jshell EntityStore.java TextSprite.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java GameLoopBenchmark.java
+ *   jshell> GameLoopBenchmark.main(null)
+ *
+ * An optional argument sets the length of each run in seconds (default 5).
+ */
+public class GameLoopBenchmark {
+
+    private static final long TICK_NANOS = DinoSim.TICK_MILLIS * 1_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args != null && args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        System.out.printf("%d ms ticks, %d s per run%n", DinoSim.TICK_MILLIS, seconds);
+        System.out.println("javax.swing.Timer " + timer(seconds).summary());
+        System.out.println("GameLoop          " + loop(seconds).summary());
+    }
+
+    // Ticks the sim from a Swing timer on the event dispatch thread.
+    private static Histogram timer(int seconds) throws Exception {
+        ScheduledSim sim = new ScheduledSim();
+        javax.swing.Timer[] timer = new javax.swing.Timer[1];
+        SwingUtilities.invokeAndWait(() -> {
+            timer[0] = new javax.swing.Timer(DinoSim.TICK_MILLIS, e -> sim.tick());
+            sim.start();
+            timer[0].start();
+        });
+        Thread.sleep(seconds * 1000L);
+        SwingUtilities.invokeAndWait(() -> timer[0].stop());
+        return sim.lateness;
+    }
+
+    // Ticks the sim from a GameLoop without a canvas.
+    private static Histogram loop(int seconds) throws Exception {
+        ScheduledSim sim = new ScheduledSim();
+        GameLoop loop = new GameLoop(sim, null, TICK_NANOS, 0);
+        sim.start();
+        loop.start();
+        Thread.sleep(seconds * 1000L);
+        loop.stop();
+        return sim.lateness;
+    }
+
+    // A game that records how late each of its ticks is against its own fixed schedule.
+    private static class ScheduledSim implements GameLoop.Game {
+        private final DinoSim sim = new DinoSim();
+        private final Histogram lateness = new Histogram();
+        private long start;
+        private long ticks;
+
+        void start() {
+            sim.reset(1);
+            start = System.nanoTime();
+        }
+
+        @Override
+        public void tick() {
+            ticks++;
+            lateness.record(System.nanoTime() - (start + ticks * TICK_NANOS));
+            if (sim.isGameOver()) {
+                sim.reset(ticks);
+            }
+            sim.tick();
+        }
+
+        @Override
+        public void render(Graphics2D g) {
+        }
+    }
+}
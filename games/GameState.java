@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * The GameState class holds a snapshot of a game as a flat sequence of ints, written by
+ * saveState() and read back in the same order by loadState(). The buffer is reused: clear()
+ * starts a new snapshot and rewind() goes back to the start of it for reading, so taking
+ * snapshots allocates nothing once it has grown to the size of the game.
+ *
+ * Games write their fields in a fixed order and their entities one after the other, so two
+ * snapshots a few ticks apart are mostly the same ints in the same places, which is what
+ * RewindBuffer relies on to store only the differences.
+ */
+class GameState {
+    private int[] words = new int[64];
+    private int size;
+    private int position;
+
+    /** Empties the buffer for a new snapshot. */
+    public void clear() {
+        size = 0;
+        position = 0;
+    }
+
+    /** Goes back to the first int, to read the snapshot. */
+    public void rewind() {
+        position = 0;
+    }
+
+    public void writeInt(int value) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, 2 * size);
+        }
+        words[size++] = value;
+    }
+
+    public void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeInt(value ? 1 : 0);
+    }
+
+    /** Writes the state of a random number generator. */
+    public void writeRandom(SnapshotRandom random) {
+        writeLong(random.getState());
+    }
+
+    /** Writes count ints of the array, starting at from. */
+    public void writeInts(int[] values, int from, int count) {
+        if (size + count > words.length) {
+            words = Arrays.copyOf(words, Math.max(2 * words.length, size + count));
+        }
+        System.arraycopy(values, from, words, size, count);
+        size += count;
+    }
+
+    public int readInt() {
+        if (position == size) {
+            throw new IllegalStateException("Read past the end of a snapshot of " + size + " ints");
+        }
+        return words[position++];
+    }
+
+    public long readLong() {
+        long high = readInt();
+        return high << 32 | readInt() & 0xFFFFFFFFL;
+    }
+
+    public boolean readBoolean() {
+        return readInt() != 0;
+    }
+
+    /** Restores the state of a random number generator. */
+    public void readRandom(SnapshotRandom random) {
+        random.setState(readLong());
+    }
+
+    /** Reads count ints into the array, starting at from. */
+    public void readInts(int[] values, int from, int count) {
+        if (position + count > size) {
+            throw new IllegalStateException("Read past the end of a snapshot of " + size + " ints");
+        }
+        System.arraycopy(words, position, values, from, count);
+        position += count;
+    }
+
+    /** Returns the number of ints in the snapshot. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ints of the snapshot, valid up to size(). The array is replaced when the
+     * buffer grows.
+     */
+    int[] words() {
+        return words;
+    }
+
+    /**
+     * Makes room for a snapshot of the given number of ints, to be filled in through
+     * words(), and sets it up for reading.
+     */
+    int[] resize(int count) {
+        if (count > words.length) {
+            words = Arrays.copyOf(words, Math.max(2 * words.length, count));
+        }
+        size = count;
+        position = 0;
+        return words;
+    }
+}
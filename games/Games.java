@@ -0,0 +1,60 @@
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.util.Arrays;
+
+/**
+ * Launches any of the games from compiled classes. JShell compiles every source file again
+ * at each start and loads its own compiler to do it; a compiled launcher starts in a
+ * fraction of that, and with a class data sharing archive of the classes the games load
+ * (see StartupBenchmark) in a fraction of that again:
+ *
+ *   > javac -encoding UTF-8 -d /tmp/games *.java
+ *   > java -cp /tmp/games StartupBenchmark dist
+ *   > java -XX:SharedArchiveFile=dist/games.jsa -cp dist/games.jar Games snake
+ *
+ * The first argument names the game, snake, dino or mars; the rest go to the game, as a seed
+ * and a log file to record the session in.
+ */
+public class Games {
+
+    static final String[] NAMES = {"snake", "dino", "mars"};
+    static final String[] CLASSES = {"SnakeGame", "DinoGame", "MarsAttacksGame"};
+
+    public static void main(String[] args) {
+        if (args == null || args.length == 0) {
+            System.err.println("Usage: Games " + String.join("|", NAMES) + " [seed [log file]]");
+            return;
+        }
+        String[] gameArgs = Arrays.copyOfRange(args, 1, args.length);
+        if (GraphicsEnvironment.isHeadless() && Boolean.getBoolean("games.exitAfterFirstFrame")) {
+            // No screen to open a window on, so StartupBenchmark times a frame drawn offscreen.
+            Component panel = (Component) Replay.create(gameClass(args[0]));
+            Dimension size = panel.getPreferredSize();
+            GameLoop.renderFirstFrame((GameLoop.Game) panel, size.width, size.height);
+            return;
+        }
+        switch (args[0]) {
+            case "snake":
+                SnakeGame.main(gameArgs);
+                break;
+            case "dino":
+                DinoGame.main(gameArgs);
+                break;
+            case "mars":
+                MarsAttacksGame.main(gameArgs);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown game " + args[0]);
+        }
+    }
+
+    /** Returns the class of the game with the given name, as Replay names the games. */
+    static String gameClass(String name) {
+        int i = Arrays.asList(NAMES).indexOf(name);
+        if (i < 0) {
+            throw new IllegalArgumentException("Unknown game " + name);
+        }
+        return CLASSES[i];
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+/**
+ * The Histogram class records durations in nanoseconds into fixed buckets, so recording
+ * never allocates. Buckets are 10 microseconds wide up to 100 ms; longer values are
+ * counted in the last bucket but still update the maximum.
+ */
+class Histogram {
+    private static final long BUCKET_NANOS = 10_000;
+    private static final int BUCKETS = 10_000;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /** Adds one value; negative values are recorded as zero. */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[(int) Math.min(BUCKETS - 1, nanos / BUCKET_NANOS)]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /** Forgets every recorded value. */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /** Returns the upper bound of the bucket holding the given percentile (0-100). */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (i + 1) * BUCKET_NANOS);
+            }
+        }
+        return max;
+    }
+
+    /** Formats count, mean, p50, p99 and max in milliseconds. */
+    public String summary() {
+        return String.format("n=%d mean=%.3f ms p50=%.3f ms p99=%.3f ms max=%.3f ms",
+                count, getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(99) / 1e6, max / 1e6);
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The InputLog class reads a recorded game session. A session is fully determined by the
+ * seed of its first game and the key events, applied between ticks, so that is all a log
+ * holds. The format is:
+ *
+ *   magic "GLOG", varint name length, name (ASCII), seed (8 bytes, big endian)
+ *   per key event: varint key << 1 | released, varint ticks since the previous event
+ *   at the end:    varint 1, varint ticks since the previous event, checksum (8 bytes)
+ *
+ * Key codes are at least 1, so a record never starts with a 0 byte; the file after the
+ * last record may be zero padding, for example when the game did not close the log, and
+ * then replay ends with the last key event and has no checksum to compare against.
+ */
+class InputLog {
+
+    /** A game whose sessions can be recorded and replayed tick for tick. */
+    interface Replayable extends GameLoop.Game {
+        /** Starts a new session. Every game of it, restarts included, derives from the seed. */
+        void newSession(long seed);
+
+        /**
+         * Applies a key event between two ticks, exactly like the keyboard would. Returns
+         * false if the key does nothing in this game, so it need not be recorded.
+         */
+        boolean input(int keyCode, boolean pressed);
+
+        /** Returns the number of ticks since the session started. */
+        long getSessionTicks();
+
+        /** Returns a hash of the whole game state, to compare a replay with the recording. */
+        long checksum();
+
+        /** Writes the whole state of the session to a snapshot, for RewindBuffer. */
+        void saveState(GameState state);
+
+        /** Puts the session back in a state written by saveState(). */
+        void loadState(GameState state);
+    }
+
+    static final int MAGIC = 0x474c4f47; // "GLOG"
+    static final int END = 1;
+
+    private final MappedByteBuffer buffer;
+    private final String game;
+    private final long seed;
+
+    private long tick;
+    private int keyCode;
+    private boolean pressed;
+    private boolean end;
+    private long checksum;
+    private boolean hasChecksum;
+
+    /** Opens a log for reading; it is mapped into memory, so long sessions load instantly. */
+    public InputLog(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not an input log");
+        }
+        byte[] name = new byte[(int) readVarint()];
+        buffer.get(name);
+        game = new String(name, StandardCharsets.US_ASCII);
+        seed = buffer.getLong();
+    }
+
+    /** Returns the name of the game that was recorded, such as "SnakeGame". */
+    public String getGame() {
+        return game;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Moves to the next record and returns false if there is none. A record is either a key
+     * event or, last, the end of the session.
+     */
+    public boolean next() {
+        if (end || !buffer.hasRemaining() || buffer.get(buffer.position()) == 0) {
+            return false;
+        }
+        try {
+            long key = readVarint();
+            long delta = readVarint();
+            if (key == END) {
+                checksum = buffer.getLong();
+                hasChecksum = true;
+                end = true;
+            } else {
+                keyCode = (int) (key >>> 1);
+                pressed = (key & 1) == 0;
+            }
+            tick += delta;
+            return true;
+        } catch (BufferUnderflowException e) {
+            // A record cut short when the game stopped writing.
+            return false;
+        }
+    }
+
+    /** Returns the session tick before which the current record happened. */
+    public long getTick() {
+        return tick;
+    }
+
+    public int getKeyCode() {
+        return keyCode;
+    }
+
+    public boolean isPressed() {
+        return pressed;
+    }
+
+    /** Returns true if the current record is the end of the session rather than a key event. */
+    public boolean isEnd() {
+        return end;
+    }
+
+    /** Returns true if the log was closed properly and so holds the final checksum. */
+    public boolean hasChecksum() {
+        return hasChecksum;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The InputQueue class carries key events from the event dispatch thread to the thread
+ * that ticks the game. It is a bounded ring buffer for a single producer and a single
+ * consumer: each side only writes its own index, and the volatile write of the index
+ * publishes the slots before it, so neither side locks or allocates. The game drains the
+ * queue at the start of every tick, so input is applied in order, between ticks, and
+ * never while a tick or a frame is in progress.
+ *
+ * Every event is stamped with System.nanoTime() when it is queued, and the time until the
+ * tick that applies it is recorded in a Histogram, the input latency of the game.
+ */
+class InputQueue {
+
+    /** Applies one key event; called by drain() on the consumer thread. */
+    interface Handler {
+        void handle(int keyCode, boolean pressed);
+    }
+
+    // Slots: the key code shifted left by one, with the low bit set for a release, and the
+    // time the event was queued.
+    private final int[] keys;
+    private final long[] times;
+    private final int mask;
+
+    // Events read so far, written by the consumer, and events written so far, written by
+    // the producer.
+    private volatile long head;
+    private volatile long tail;
+    // The producer's last look at head, so it only reads the volatile when the queue seems full.
+    private long cachedHead;
+
+    private final Histogram latencies = new Histogram();
+
+    /** Creates a queue for the given number of events, rounded up to a power of two. */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        keys = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Queues a key event; producer only. Returns false, dropping the event, if the queue
+     * is full because the game has stopped ticking.
+     */
+    public boolean offer(int keyCode, boolean pressed) {
+        long t = tail;
+        if (t - cachedHead == keys.length) {
+            cachedHead = head;
+            if (t - cachedHead == keys.length) {
+                return false;
+            }
+        }
+        int slot = (int) t & mask;
+        keys[slot] = keyCode << 1 | (pressed ? 0 : 1);
+        times[slot] = System.nanoTime();
+        tail = t + 1;
+        return true;
+    }
+
+    /**
+     * Hands every queued event to the handler, oldest first, and records how long each
+     * waited; consumer only. Returns the number of events drained.
+     */
+    public int drain(Handler handler) {
+        long h = head;
+        long t = tail;
+        if (h == t) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        for (long i = h; i < t; i++) {
+            int slot = (int) i & mask;
+            int key = keys[slot];
+            latencies.record(now - times[slot]);
+            handler.handle(key >>> 1, (key & 1) == 0);
+        }
+        head = t;
+        return (int) (t - h);
+    }
+
+    /** Drops every queued event without applying it; consumer only. */
+    public void clear() {
+        head = tail;
+    }
+
+    /** Returns the input latencies recorded so far; read them on the consumer thread or once it stopped. */
+    public Histogram getLatencies() {
+        return latencies;
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The InputRecorder class writes an InputLog. It appends through a memory-mapped window of
+ * the file that moves on when full, so recording a key press is a few byte stores on the
+ * loop thread, where the tick applies it, without a system call.
+ */
+class InputRecorder implements Closeable {
+    private static final int WINDOW = 64 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    // File offset of the mapped window.
+    private long base;
+    private long lastTick;
+
+    public InputRecorder(Path file, String game, long seed) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW);
+        byte[] name = game.getBytes(StandardCharsets.US_ASCII);
+        buffer.putInt(InputLog.MAGIC);
+        writeVarint(name.length);
+        buffer.put(name);
+        buffer.putLong(seed);
+    }
+
+    /**
+     * Starts a session of the game from the command line arguments [seed [log file]]: with
+     * a seed the session is deterministic, and with a file it is also recorded. Returns the
+     * recorder, or null when not recording.
+     */
+    static InputRecorder start(InputLog.Replayable game, String name, String[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        long seed = Long.parseLong(args[0]);
+        game.newSession(seed);
+        if (args.length < 2) {
+            return null;
+        }
+        try {
+            return new InputRecorder(Path.of(args[1]), name, seed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Records a key event applied before the given session tick. */
+    public void record(long tick, int keyCode, boolean pressed) {
+        writeVarint((long) keyCode << 1 | (pressed ? 0 : 1));
+        writeVarint(tick - lastTick);
+        lastTick = tick;
+    }
+
+    /** Records the end of the session with the checksum of the final state, and closes the file. */
+    public void finish(long tick, long checksum) {
+        writeVarint(InputLog.END);
+        writeVarint(tick - lastTick);
+        ensure(8);
+        buffer.putLong(checksum);
+        try {
+            close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        buffer.force();
+        long length = base + buffer.position();
+        try {
+            channel.truncate(length);
+        } catch (IOException e) {
+            // Some platforms refuse to shrink a mapped file. The zero padding left behind
+            // reads as the end of the log, so it only costs disk space.
+        }
+        channel.close();
+    }
+
+    private void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // Moves the window on if fewer than n bytes are left in it.
+    private void ensure(int n) {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+        base += buffer.position();
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, base, WINDOW);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
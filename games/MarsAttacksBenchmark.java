@@ -0,0 +1,81 @@
+import java.util.Random;
+
+/**
+ * Benchmark for the bullet/alien collision check of MarsAttacksGame. It compares the
+ * BulletAlienCollider broad phase with an all-pairs loop for a growing number
+ * of live entities. The world grows with the entity count so the density stays at about
+ * 500 entities per 800x600 screen.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java MarsAttacksBenchmark.java
+ *   jshell> MarsAttacksBenchmark.main(null)
+ */
+public class MarsAttacksBenchmark {
+
+    private static final int[] ENTITY_COUNTS = {1_000, 5_000, 10_000, 20_000, 50_000, 100_000};
+    // The all-pairs loop is quadratic, so it is skipped above this count.
+    private static final int MAX_BRUTE_FORCE = 20_000;
+    private static final int REPETITIONS = 20;
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %14s %12s%n", "entities", "grid ms/tick", "pairs ms/tick", "grid ns/ent");
+        for (int n : ENTITY_COUNTS) {
+            int side = (int) Math.sqrt((double) n * 800 * 600 / 500);
+            EntityStore bullets = new EntityStore();
+            EntityStore aliens = new EntityStore();
+            populate(new Random(n), n, side, bullets, aliens);
+
+            BulletAlienCollider collider = new BulletAlienCollider(side, side);
+            double grid = time(bullets, aliens, collider);
+            double pairs = n <= MAX_BRUTE_FORCE ? time(bullets, aliens, null) : Double.NaN;
+            System.out.printf("%10d %14.3f %14.3f %12.1f%n", n, grid, pairs, grid * 1e6 / n);
+        }
+    }
+
+    // Half of the entities are bullets, half aliens, spread uniformly over the world.
+    private static void populate(Random random, int n, int side, EntityStore bullets, EntityStore aliens) {
+        for (int i = 0; i < n / 2; i++) {
+            Bullet.spawn(bullets, random.nextInt(side), random.nextInt(side));
+            Alien.spawn(aliens, random.nextInt(side), random.nextInt(side));
+        }
+    }
+
+    // Returns the average milliseconds per collision pass; collider == null runs the all-pairs loop.
+    private static double time(EntityStore bullets, EntityStore aliens, BulletAlienCollider collider) {
+        EntityStore b = new EntityStore();
+        EntityStore a = new EntityStore();
+        long total = 0;
+        long hits = 0;
+        for (int rep = -REPETITIONS; rep < REPETITIONS; rep++) {
+            // Every pass removes what it hits, so each one starts from a fresh copy.
+            b.copyFrom(bullets);
+            a.copyFrom(aliens);
+            long start = System.nanoTime();
+            hits += collider != null ? collider.resolveHits(b, a) : allPairs(b, a);
+            long elapsed = System.nanoTime() - start;
+            // Negative repetitions are warm-up.
+            if (rep >= 0) {
+                total += elapsed;
+            }
+        }
+        if (hits == 0) {
+            System.out.println("no hits");
+        }
+        return total / 1e6 / REPETITIONS;
+    }
+
+    // Tests every bullet against every alien, as GamePanel.updateGame() originally did.
+    private static int allPairs(EntityStore bullets, EntityStore aliens) {
+        int hits = 0;
+        for (int i = bullets.size() - 1; i >= 0; i--) {
+            for (int j = 0; j < aliens.size(); j++) {
+                if (aliens.intersects(j, bullets.x[i], bullets.y[i], bullets.width[i], bullets.height[i])) {
+                    bullets.remove(i);
+                    aliens.remove(j);
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+}
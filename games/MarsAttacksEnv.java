@@ -0,0 +1,82 @@
+/**
+ * The MarsAttacksEnv class adapts a MarsAttacksSim to VectorEnv. The actions are
+ * 0 nothing, 1 left, 2 right, 3 fire, 4 left and fire, 5 right and fire. The observation
+ * is the horizontal position of the player followed by the aliens closest to the bottom,
+ * lowest first, scaled to roughly [-1, 1]:
+ *
+ *   0                   x of the player
+ *   1 + 3k .. 3 + 3k    alien k: present (1 or 0), x relative to the player, y
+ *
+ * The reward is 1 for every alien shot down and -1 when the game is lost.
+ */
+class MarsAttacksEnv implements VectorEnv.Env {
+    public static final int OBSERVED_ALIENS = 5;
+    public static final int OBSERVATION_SIZE = 1 + 3 * OBSERVED_ALIENS;
+    public static final int ACTIONS = 6;
+
+    private final MarsAttacksSim sim = new MarsAttacksSim();
+    // Indices of the lowest aliens, kept sorted by descending y while observing.
+    private final int[] lowest = new int[OBSERVED_ALIENS];
+
+    @Override
+    public void reset(long seed) {
+        sim.reset(seed);
+    }
+
+    @Override
+    public float step(int action) {
+        sim.setLeftPressed(action == 1 || action == 4);
+        sim.setRightPressed(action == 2 || action == 5);
+        if (action >= 3) {
+            sim.fire();
+        }
+        int score = sim.getScore();
+        sim.tick();
+        return (sim.getScore() - score) / 10 - (sim.isGameOver() ? 1 : 0);
+    }
+
+    @Override
+    public boolean isDone() {
+        return sim.isGameOver();
+    }
+
+    @Override
+    public void observe(float[] obs, int offset) {
+        Player player = sim.getPlayer();
+        int playerX = player.getX() + player.getWidth() / 2;
+        obs[offset] = (float) playerX / MarsAttacksSim.WIDTH;
+
+        // Insertion into a short sorted list; there are only ever a few aliens.
+        EntityStore aliens = sim.getAliens();
+        int found = 0;
+        for (int i = 0; i < aliens.size(); i++) {
+            int pos = found < OBSERVED_ALIENS ? found++ : OBSERVED_ALIENS;
+            while (pos > 0 && aliens.y[lowest[pos - 1]] < aliens.y[i]) {
+                if (pos < OBSERVED_ALIENS) {
+                    lowest[pos] = lowest[pos - 1];
+                }
+                pos--;
+            }
+            if (pos < OBSERVED_ALIENS) {
+                lowest[pos] = i;
+            }
+        }
+        for (int k = 0; k < OBSERVED_ALIENS; k++) {
+            int o = offset + 1 + 3 * k;
+            if (k < found) {
+                int i = lowest[k];
+                obs[o] = 1;
+                obs[o + 1] = (float) (aliens.x[i] + aliens.width[i] / 2 - playerX) / MarsAttacksSim.WIDTH;
+                obs[o + 2] = (float) aliens.y[i] / MarsAttacksSim.HEIGHT;
+            } else {
+                obs[o] = 0;
+                obs[o + 1] = 0;
+                obs[o + 2] = 0;
+            }
+        }
+    }
+
+    public MarsAttacksSim getSim() {
+        return sim;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Random;
+
+/**
+ * Checks that MarsAttacksSim.fastForward plays exactly like ticking, and measures how much
+ * faster it is when the game is only steered every 10 or 100 ticks, as a batch evaluation
+ * with a coarse time step would. Every session is played twice from the same seed by the
+ * same simple player, once tick by tick and once fast-forwarding from one decision to the
+ * next, and the checksums must match at the end of every game; otherwise it fails with an
+ * AssertionError. A lost game is restarted with a new seed until the session has run for
+ * the given number of ticks.
+ *
+ * At every decision the player heads for the lowest alien and fires; now and then it holds
+ * both arrow keys or none instead, so every way the ship moves is covered. Bullets fired
+ * from far below a descending alien cross it within one step of 10 ticks or more, which is
+ * where a step that only looked at the end positions would miss the hit.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java MarsAttacksFastForward.java
+ *   jshell> MarsAttacksFastForward.main(null)
+ *
+ * Optional arguments set the number of sessions per step (default 20) and the ticks per
+ * session (default 100,000).
+ */
+public class MarsAttacksFastForward {
+
+    // Ticks between two decisions of the player.
+    private static final int[] STEPS = {10, 100};
+
+    // The number of games and the points scored in the last session played.
+    private static int gamesPlayed;
+    private static long scored;
+
+    public static void main(String[] args) {
+        int sessions = args != null && args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long maxTicks = args != null && args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+
+        // Warm up both ways of playing so the JIT has compiled them before the timing.
+        for (long seed = -20; seed < 0; seed++) {
+            play(seed, STEPS[0], maxTicks / 10, false);
+            play(seed, STEPS[0], maxTicks / 10, true);
+        }
+
+        for (int step : STEPS) {
+            long games = 0;
+            long score = 0;
+            long tickByTick = 0;
+            long fastForward = 0;
+            for (long seed = 0; seed < sessions; seed++) {
+                long start = System.nanoTime();
+                long expected = play(seed, step, maxTicks, false);
+                long middle = System.nanoTime();
+                long actual = play(seed, step, maxTicks, true);
+                fastForward += System.nanoTime() - middle;
+                tickByTick += middle - start;
+                if (actual != expected) {
+                    throw new AssertionError(String.format("step %d, seed %d: fast forward ended in state %016x, ticking in %016x",
+                                                           step, seed, actual, expected));
+                }
+                games += gamesPlayed;
+                score += scored;
+            }
+            long ticks = sessions * maxTicks;
+            System.out.printf("step %3d: %,d games, %,d ticks, %,d points, all ended in the same state%n",
+                              step, games, ticks, score);
+            System.out.printf("  tick by tick  %10.1f ms %,16.0f ticks/s%n", tickByTick / 1e6, ticks / (tickByTick / 1e9));
+            System.out.printf("  fast forward  %10.1f ms %,16.0f ticks/s  (%.1fx)%n", fastForward / 1e6,
+                              ticks / (fastForward / 1e9), (double) tickByTick / fastForward);
+        }
+    }
+
+    // Plays games for maxTicks in all, deciding every step ticks, and returns a hash of the
+    // checksums at the end of every game.
+    private static long play(long seed, int step, long maxTicks, boolean skip) {
+        MarsAttacksSim sim = new MarsAttacksSim();
+        Random random = new Random(seed);
+        sim.reset(random.nextLong());
+        long hash = 0;
+        gamesPlayed = 1;
+        scored = 0;
+        for (long left = maxTicks; left > 0; ) {
+            if (sim.isGameOver()) {
+                hash = 31 * hash + sim.checksum();
+                scored += sim.getScore();
+                gamesPlayed++;
+                sim.reset(random.nextLong());
+            }
+            decide(sim, random);
+            long ticks = Math.min(step, left);
+            if (skip) {
+                ticks = sim.fastForward(ticks);
+            } else {
+                long t = 0;
+                while (t < ticks && !sim.isGameOver()) {
+                    sim.tick();
+                    t++;
+                }
+                ticks = t;
+            }
+            left -= ticks;
+        }
+        scored += sim.getScore();
+        return 31 * hash + sim.checksum();
+    }
+
+    // Sets the arrow keys toward the lowest alien and fires.
+    private static void decide(MarsAttacksSim sim, Random random) {
+        EntityStore aliens = sim.getAliens();
+        Player player = sim.getPlayer();
+        int lowest = -1;
+        for (int i = 0; i < aliens.size(); i++) {
+            if (lowest < 0 || aliens.y[i] > aliens.y[lowest]) {
+                lowest = i;
+            }
+        }
+        int choice = random.nextInt(10);
+        if (choice == 0) {
+            sim.setLeftPressed(true);
+            sim.setRightPressed(true);
+        } else if (choice == 1 || lowest < 0) {
+            sim.setLeftPressed(false);
+            sim.setRightPressed(false);
+        } else {
+            int target = aliens.x[lowest] + aliens.width[lowest] / 2;
+            int ship = player.getX() + player.getWidth() / 2;
+            sim.setLeftPressed(target < ship - player.getSpeed());
+            sim.setRightPressed(target > ship + player.getSpeed());
+        }
+        sim.fire();
+    }
+}
@@ -1,16 +1,35 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main class that creates the game window.
  */
 public class MarsAttacksGame extends JFrame {
+    private static final long serialVersionUID = 1L;
 
     public MarsAttacksGame() {
-        add(new GamePanel());
+        this(null);
+    }
+
+    /**
+     * Creates the game window; args are [seed [log file]] for a deterministic, recorded session.
+     * The system property mars.swarm, for example "300,600", switches to swarm mode with that
+     * many aliens and bullets spawned per tick.
+     */
+    public MarsAttacksGame(String[] args) {
+        String swarm = System.getProperty("mars.swarm");
+        GamePanel panel = swarm == null ? new GamePanel() : new GamePanel(swarm);
+        panel.startSession(args);
+        add(panel);
+        // Stop the game loop (and report its timing) before the application exits.
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                panel.stopGame();
+            }
+        });
         setTitle("Mars Attacks Arcade Game");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         pack();
@@ -21,368 +40,339 @@ public class MarsAttacksGame extends JFrame {
     public static void main(String[] args) {
         // Launch the game on the Event Dispatch Thread.
         EventQueue.invokeLater(() -> {
-            MarsAttacksGame game = new MarsAttacksGame();
+            MarsAttacksGame game = new MarsAttacksGame(args);
             game.setVisible(true);
         });
     }
-}
-
-/**
- * The GamePanel class handles drawing, game logic, and user input.
- */
-class GamePanel extends JPanel implements ActionListener, KeyListener {
-
-    // Panel dimensions.
-    private final int PANEL_WIDTH = 800;
-    private final int PANEL_HEIGHT = 600;
-    // Game loop timer delay (in milliseconds).
-    private final int DELAY = 20; // ~50 FPS
-
-    // The player ship.
-    private Player player;
-    // Lists to hold active bullets and aliens.
-    private ArrayList<Bullet> bullets;
-    private ArrayList<Alien> aliens;
-
-    // Score and game state.
-    private int score;
-    private boolean gameOver;
-
-    // Input flags.
-    private boolean leftPressed = false;
-    private boolean rightPressed = false;
-
-    // Timer to control the game loop.
-    private javax.swing.Timer timer;
-    // Variables to control alien spawning.
-    private int alienSpawnCounter = 0;
-    private int alienSpawnDelay = 50; // spawn an alien every 50 ticks (approximately every second)
-    private Random random = new Random();
-
-    public GamePanel() {
-        setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
-        setBackground(Color.BLACK);
-        setFocusable(true);
-        addKeyListener(this);
-        initGame();
-    }
 
     /**
-     * Initializes or resets the game state.
+     * The GamePanel class handles drawing and user input; the game logic lives in MarsAttacksSim.
+     * It is a GameCanvas, whose loop also ticks the simulation. Each frame only the previous
+     * and current bounds of the player, bullets and aliens (and the score, when it changes)
+     * are redrawn.
      */
-    private void initGame() {
-        // Create the player at the bottom center.
-        player = new Player(PANEL_WIDTH / 2 - 20, PANEL_HEIGHT - 60, 40, 40);
-        bullets = new ArrayList<>();
-        aliens = new ArrayList<>();
-        score = 0;
-        gameOver = false;
-        alienSpawnCounter = 0;
-
-        // Start (or restart) the game timer.
-        if (timer != null && timer.isRunning()) {
-            timer.stop();
+    static class GamePanel extends GameCanvas {
+        private static final long serialVersionUID = 1L;
+
+        // Panel dimensions.
+        private final int PANEL_WIDTH = MarsAttacksSim.WIDTH;
+        private final int PANEL_HEIGHT = MarsAttacksSim.HEIGHT;
+        // Game loop tick length (in milliseconds).
+        private static final int DELAY = 20; // ~50 ticks per second
+
+        // Fonts and text are created once so painting does not allocate.
+        private final Font SCORE_FONT = new Font("Arial", Font.PLAIN, 14);
+        private final ScoreLabel scoreLabel = new ScoreLabel(SCORE_FONT, Color.WHITE);
+        private final TextSprite GAME_OVER_TEXT = new TextSprite("Game Over", new Font("Arial", Font.BOLD, 36), Color.RED);
+        private final TextSprite RESTART_TEXT = new TextSprite("Press R to Restart", new Font("Arial", Font.PLAIN, 18), Color.RED);
+
+        private final MarsAttacksSim sim = new MarsAttacksSim();
+
+        // Seeds of the games after a restart.
+        private final SnapshotRandom seeds = new SnapshotRandom();
+
+        // Where the player was before the last tick and whether everything moved in it, and
+        // how far frames draw them on the way from there (see setInterpolation). Bullets and
+        // aliens move at a fixed speed, so where they were follows from where they are.
+        private int fromPlayerX;
+        private boolean stepped;
+        private float alpha = 1;
+
+        // What the last rendered frame showed, to work out what changed since.
+        private long shownTicks = -1;
+        private boolean shownGameOver;
+        private int shownPlayerX, shownPlayerY;
+        private float shownBehind;
+        private final EntityStore shownBullets = new EntityStore();
+        private final EntityStore shownAliens = new EntityStore();
+        private int shownScore, shownScoreWidth;
+
+        public GamePanel() {
+            super(DELAY);
+            setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
+            setBackground(Color.BLACK);
+            newSession(System.nanoTime());
         }
-        timer = new javax.swing.Timer(DELAY, this);
-        timer.start();
-    }
 
-    /**
-     * Main drawing method.
-     */
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        draw(g);
-    }
-
-    /**
-     * Draws the player, bullets, aliens, and score. Displays a Game Over screen if needed.
-     */
-    private void draw(Graphics g) {
-        if (!gameOver) {
-            // Draw the player.
-            player.draw(g);
-
-            // Draw all bullets.
-            for (Bullet b : bullets) {
-                b.draw(g);
+        /**
+         * Creates a panel playing in swarm mode, with swarm as "aliens,bullets" per tick. The
+         * tick is split over the common ForkJoinPool.
+         *
+         * @throws IllegalArgumentException if swarm is not two positive integers; a swarm
+         *         with no aliens would be the normal game, and one with no bullets half a swarm
+         */
+        public GamePanel(String swarm) {
+            this();
+            String[] rates = swarm.split(",", -1);
+            if (rates.length != 2) {
+                throw invalidSwarm(swarm, null);
             }
+            sim.setSwarm(swarmRate(rates[0], swarm), swarmRate(rates[1], swarm));
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            sim.setParallel(pool, pool.getParallelism());
+        }
 
-            // Draw all aliens.
-            for (Alien a : aliens) {
-                a.draw(g);
+        private static int swarmRate(String rate, String swarm) {
+            int value;
+            try {
+                value = Integer.parseInt(rate.trim());
+            } catch (NumberFormatException e) {
+                throw invalidSwarm(swarm, e);
             }
-
-            // Draw the score.
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.PLAIN, 14));
-            g.drawString("Score: " + score, 10, 20);
-        } else {
-            // Display Game Over message.
-            g.setColor(Color.RED);
-            g.setFont(new Font("Arial", Font.BOLD, 36));
-            String msg = "Game Over";
-            FontMetrics fm = getFontMetrics(g.getFont());
-            g.drawString(msg, (PANEL_WIDTH - fm.stringWidth(msg)) / 2, PANEL_HEIGHT / 2);
-            g.setFont(new Font("Arial", Font.PLAIN, 18));
-            String restartMsg = "Press R to Restart";
-            fm = getFontMetrics(g.getFont());
-            g.drawString(restartMsg, (PANEL_WIDTH - fm.stringWidth(restartMsg)) / 2, PANEL_HEIGHT / 2 + 40);
+            if (value <= 0) {
+                throw invalidSwarm(swarm, null);
+            }
+            return value;
         }
-        Toolkit.getDefaultToolkit().sync();
-    }
 
-    /**
-     * Called on every timer tick to update game state.
-     */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!gameOver) {
-            updateGame();
+        private static IllegalArgumentException invalidSwarm(String swarm, Throwable cause) {
+            return new IllegalArgumentException("Swarm must be aliens,bullets per tick, two positive integers such as "
+                                                + "300,600, not \"" + swarm + "\"", cause);
         }
-        repaint();
-    }
 
-    /**
-     * Updates positions of the player, bullets, and aliens; spawns new aliens; and checks for collisions.
-     */
-    private void updateGame() {
-        // Update player movement.
-        if (leftPressed) {
-            player.move(-player.getSpeed(), 0, PANEL_WIDTH);
+        /**
+         * Returns the name the game is recorded under: "MarsAttacksGame", or in swarm mode for
+         * example "MarsAttacksGame swarm=300,600".
+         */
+        @Override
+        String getGameName() {
+            if (!sim.isSwarm()) {
+                return "MarsAttacksGame";
+            }
+            return "MarsAttacksGame swarm=" + sim.getSwarmAliens() + "," + sim.getSwarmBullets();
         }
-        if (rightPressed) {
-            player.move(player.getSpeed(), 0, PANEL_WIDTH);
+
+        /**
+         * Writes the session, the seeds of later games included, to a snapshot.
+         */
+        @Override
+        public void saveState(GameState state) {
+            sim.saveState(state);
+            state.writeLong(sessionTicks);
+            state.writeRandom(seeds);
         }
 
-        // Update bullets.
-        ArrayList<Bullet> bulletsToRemove = new ArrayList<>();
-        for (Bullet b : bullets) {
-            b.update();
-            if (b.getY() < 0) {
-                bulletsToRemove.add(b);
-            }
+        /**
+         * Puts the session back in a state written by saveState().
+         */
+        @Override
+        public void loadState(GameState state) {
+            sim.loadState(state);
+            sessionTicks = state.readLong();
+            state.readRandom(seeds);
+            holdPositions(false);
         }
-        bullets.removeAll(bulletsToRemove);
-
-        // Update aliens.
-        for (Alien a : aliens) {
-            a.update();
-            // If an alien reaches the bottom, the game is over.
-            if (a.getY() > PANEL_HEIGHT) {
-                gameOver = true;
-                timer.stop();
-            }
+
+        /**
+         * Starts a new session: the first game gets the seed, restarts get seeds derived from it.
+         */
+        @Override
+        public synchronized void newSession(long seed) {
+            seeds.setSeed(seed);
+            sim.reset(seed);
+            sessionTicks = 0;
+            holdPositions(false);
         }
 
-        // Spawn new aliens at fixed intervals.
-        alienSpawnCounter++;
-        if (alienSpawnCounter >= alienSpawnDelay) {
-            spawnAlien();
-            alienSpawnCounter = 0;
+        /**
+         * Returns the simulation shown by the panel.
+         */
+        MarsAttacksSim getSim() {
+            return sim;
         }
 
-        // Check for collisions between bullets and aliens.
-        ArrayList<Bullet> removeBullets = new ArrayList<>();
-        ArrayList<Alien> removeAliens = new ArrayList<>();
-        for (Bullet b : bullets) {
-            for (Alien a : aliens) {
-                if (b.getBounds().intersects(a.getBounds())) {
-                    removeBullets.add(b);
-                    removeAliens.add(a);
-                    score += 10;
-                }
-            }
+        /**
+         * Fills in the tick and the numbers of bullets and aliens of a flight recorder event.
+         */
+        @Override
+        public void describe(GameEvent event) {
+            event.game = "MarsAttacksGame";
+            event.tick = sim.getTicks();
+            event.bullets = sim.getBullets().size();
+            event.aliens = sim.getAliens().size();
         }
-        bullets.removeAll(removeBullets);
-        aliens.removeAll(removeAliens);
-
-        // Check for collisions between aliens and the player.
-        for (Alien a : aliens) {
-            if (a.getBounds().intersects(player.getBounds())) {
-                gameOver = true;
-                timer.stop();
-            }
+
+        /**
+         * Draws everything that moves the given part of the way through the last tick.
+         */
+        @Override
+        public void setInterpolation(float alpha) {
+            this.alpha = alpha;
         }
-    }
 
-    /**
-     * Spawns a new alien at a random horizontal position above the top edge.
-     */
-    private void spawnAlien() {
-        int alienWidth = 40;
-        int alienHeight = 40;
-        int x = random.nextInt(PANEL_WIDTH - alienWidth);
-        int y = -alienHeight;
-        aliens.add(new Alien(x, y, alienWidth, alienHeight));
-    }
+        /**
+         * Takes the player where it is as the start of its next move; stepped tells whether
+         * the coming tick moves anything.
+         */
+        private void holdPositions(boolean stepped) {
+            fromPlayerX = sim.getPlayer().getX();
+            this.stepped = stepped;
+        }
 
-    // KeyListener methods:
+        /**
+         * Returns the x the player is drawn at, between the last two ticks.
+         */
+        private int drawnPlayerX() {
+            return fromPlayerX + Math.round((sim.getPlayer().getX() - fromPlayerX) * alpha);
+        }
 
-    @Override
-    public void keyTyped(KeyEvent e) {
-        // Not used.
-    }
+        /**
+         * Returns how many ticks back from where they are the bullets and aliens are drawn.
+         */
+        private float drawnBehind() {
+            return stepped ? 1 - alpha : 0;
+        }
 
-    @Override
-    public void keyPressed(KeyEvent e) {
-        int key = e.getKeyCode();
-        if (!gameOver) {
-            if (key == KeyEvent.VK_LEFT) {
-                leftPressed = true;
-            }
-            if (key == KeyEvent.VK_RIGHT) {
-                rightPressed = true;
+        /**
+         * Reports the previous and current bounds of everything that moves.
+         */
+        @Override
+        public void collectDirty(DirtyRegion dirty) {
+            long ticks = sim.getTicks();
+            int playerX = drawnPlayerX();
+            float behind = drawnBehind();
+            if (ticks == shownTicks && sim.isGameOver() == shownGameOver && playerX == shownPlayerX
+                    && behind == shownBehind) {
+                return;
             }
-            if (key == KeyEvent.VK_SPACE) {
-                // Shoot a bullet from the center-top of the player ship.
-                int bulletWidth = 5;
-                int bulletHeight = 10;
-                int bx = player.getX() + player.getWidth() / 2 - bulletWidth / 2;
-                int by = player.getY();
-                bullets.add(new Bullet(bx, by, bulletWidth, bulletHeight));
+            Player player = sim.getPlayer();
+            boolean everything = ticks < shownTicks || sim.isGameOver() != shownGameOver;
+            if (everything) {
+                // A new game, or the game over screen.
+                dirty.addAll();
+            } else {
+                dirty.add(shownPlayerX, shownPlayerY, player.getWidth(), player.getHeight());
+                dirty.add(playerX, player.getY(), player.getWidth(), player.getHeight());
+                addBounds(dirty, shownBullets);
+                addBounds(dirty, shownAliens);
+                if (sim.getScore() != shownScore) {
+                    scoreLabel.setScore(sim.getScore());
+                    dirty.add(10, 20 - scoreLabel.getAscent(), Math.max(shownScoreWidth, scoreLabel.getWidth()),
+                              scoreLabel.getHeight());
+                }
             }
-        } else {
-            if (key == KeyEvent.VK_R) {
-                // Restart the game.
-                initGame();
+            shownTicks = ticks;
+            shownGameOver = sim.isGameOver();
+            shownPlayerX = playerX;
+            shownPlayerY = player.getY();
+            shownBehind = behind;
+            copyDrawn(shownBullets, sim.getBullets(), Bullet.MOVEMENT, behind);
+            copyDrawn(shownAliens, sim.getAliens(), Alien.MOVEMENT, behind);
+            if (!everything) {
+                addBounds(dirty, shownBullets);
+                addBounds(dirty, shownAliens);
             }
+            shownScore = sim.getScore();
+            scoreLabel.setScore(shownScore);
+            shownScoreWidth = scoreLabel.getWidth();
         }
-    }
 
-    @Override
-    public void keyReleased(KeyEvent e) {
-        int key = e.getKeyCode();
-        if (key == KeyEvent.VK_LEFT) {
-            leftPressed = false;
-        }
-        if (key == KeyEvent.VK_RIGHT) {
-            rightPressed = false;
+        /**
+         * Copies the entities where frames draw them, the given number of ticks back along
+         * the way their movement takes them.
+         */
+        private static void copyDrawn(EntityStore shown, EntityStore store, Movement movement, float behind) {
+            shown.copyFrom(store);
+            if (behind != 0) {
+                for (int i = 0; i < shown.size(); i++) {
+                    shown.y[i] = movement.drawnY(shown, i, behind);
+                }
+            }
         }
-    }
-}
 
-/**
- * The Player class represents the user-controlled ship.
- */
-class Player {
-    private int x, y, width, height;
-    private int speed = 5;
-
-    public Player(int x, int y, int width, int height) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-    }
-
-    /**
-     * Moves the player horizontally while keeping within the panel bounds.
-     */
-    public void move(int dx, int dy, int panelWidth) {
-        x += dx;
-        if (x < 0) {
-            x = 0;
-        }
-        if (x + width > panelWidth) {
-            x = panelWidth - width;
+        private static void addBounds(DirtyRegion dirty, EntityStore store) {
+            for (int i = 0; i < store.size(); i++) {
+                dirty.add(store.x[i], store.y[i], store.width[i], store.height[i]);
+            }
         }
-    }
-
-    /**
-     * Draws the player as a blue rectangle.
-     */
-    public void draw(Graphics g) {
-        g.setColor(Color.BLUE);
-        g.fillRect(x, y, width, height);
-    }
-
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
-    }
-
-    public int getSpeed() {
-        return speed;
-    }
-
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getWidth() { return width; }
-}
-
-/**
- * The Bullet class represents projectiles shot by the player.
- */
-class Bullet {
-    private int x, y, width, height;
-    private int speed = 7;
-
-    public Bullet(int x, int y, int width, int height) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-    }
-
-    /**
-     * Moves the bullet upward.
-     */
-    public void update() {
-        y -= speed;
-    }
-
-    /**
-     * Draws the bullet as a yellow rectangle.
-     */
-    public void draw(Graphics g) {
-        g.setColor(Color.YELLOW);
-        g.fillRect(x, y, width, height);
-    }
-
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
-    }
 
-    public int getY() {
-        return y;
-    }
-}
-
-/**
- * The Alien class represents enemy aliens.
- */
-class Alien {
-    private int x, y, width, height;
-    private int speed = 2;
-
-    public Alien(int x, int y, int width, int height) {
-        this.x = x;
-        this.y = y;
-        this.width = width;
-        this.height = height;
-    }
+        /**
+         * Main drawing method, called by the game loop with the back buffer.
+         */
+        @Override
+        public void render(Graphics2D g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+            draw(g);
+        }
 
-    /**
-     * Moves the alien downward.
-     */
-    public void update() {
-        y += speed;
-    }
+        /**
+         * Draws the player, bullets, aliens, and score. Displays a Game Over screen if needed.
+         */
+        private void draw(Graphics2D g) {
+            if (!sim.isGameOver()) {
+                // Draw the player.
+                sim.getPlayer().draw(g, drawnPlayerX());
+
+                // Draw all bullets.
+                Bullet.draw(g, sim.getBullets(), drawnBehind());
+
+                // Draw all aliens.
+                Alien.draw(g, sim.getAliens(), drawnBehind());
+
+                // Draw the score.
+                scoreLabel.setScore(sim.getScore());
+                scoreLabel.draw(g, 10, 20);
+            } else {
+                // Display Game Over message.
+                GAME_OVER_TEXT.draw(g, (PANEL_WIDTH - GAME_OVER_TEXT.getWidth()) / 2, PANEL_HEIGHT / 2);
+                RESTART_TEXT.draw(g, (PANEL_WIDTH - RESTART_TEXT.getWidth()) / 2, PANEL_HEIGHT / 2 + 40);
+            }
+        }
 
-    /**
-     * Draws the alien as a red oval.
-     */
-    public void draw(Graphics g) {
-        g.setColor(Color.RED);
-        g.fillOval(x, y, width, height);
-    }
+        /**
+         * Called on every tick to update game state.
+         */
+        @Override
+        protected void step() {
+            holdPositions(!sim.isGameOver());
+            if (!sim.isGameOver()) {
+                sim.tick();
+            }
+        }
 
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
-    }
+        /**
+         * Moves on the arrow keys, fires on space and restarts on R after the game is over.
+         */
+        @Override
+        public boolean input(int keyCode, boolean pressed) {
+            if (!pressed) {
+                if (keyCode == KeyEvent.VK_LEFT) {
+                    sim.setLeftPressed(false);
+                    return true;
+                }
+                if (keyCode == KeyEvent.VK_RIGHT) {
+                    sim.setRightPressed(false);
+                    return true;
+                }
+                return false;
+            }
+            if (!sim.isGameOver()) {
+                if (keyCode == KeyEvent.VK_LEFT) {
+                    sim.setLeftPressed(true);
+                    return true;
+                }
+                if (keyCode == KeyEvent.VK_RIGHT) {
+                    sim.setRightPressed(true);
+                    return true;
+                }
+                if (keyCode == KeyEvent.VK_SPACE) {
+                    sim.fire();
+                    return true;
+                }
+            } else {
+                if (keyCode == KeyEvent.VK_R) {
+                    // Restart the game.
+                    sim.reset(seeds.nextLong());
+                    return true;
+                }
+            }
+            return false;
+        }
 
-    public int getY() {
-        return y;
+        @Override
+        public long checksum() {
+            return sim.checksum();
+        }
     }
 }
@@ -0,0 +1,379 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The MarsAttacksSim class holds the game state and rules without any Swing dependency,
+ * so it can be stepped headless.
+ *
+ * In swarm mode aliens pour in and bullets rise from the whole bottom edge at set rates,
+ * and aliens that reach the bottom or the ship are destroyed instead of ending the game, so
+ * it can run with hundreds of thousands of entities. Bullets and aliens move by their
+ * systems (Movement), run over the stores in chunks by a SystemSet. With a pool set, the
+ * movement and the collision of large crowds run on it instead, split into vertical strips
+ * of the world by a PartitionedTick, with exactly the same result as on one thread.
+ */
+class MarsAttacksSim {
+
+    // World dimensions.
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+
+    // The player ship.
+    private final Player player = new Player(WIDTH / 2 - 20, HEIGHT - 60, 40, 40);
+    // Stores holding the active bullets and aliens.
+    private final EntityStore bullets = new EntityStore();
+    private final EntityStore aliens = new EntityStore();
+    // Moves the bullets and aliens; neither depends on the other.
+    private final SystemSet movement = new SystemSet().add(bullets, Bullet.MOVEMENT).add(aliens, Alien.MOVEMENT);
+
+    // Score and game state.
+    private int score;
+    private boolean gameOver;
+    private long ticks;
+
+    // Input flags.
+    private boolean leftPressed = false;
+    private boolean rightPressed = false;
+
+    // Variables to control alien spawning.
+    private int alienSpawnCounter = 0;
+    private int alienSpawnDelay = 50; // spawn an alien every 50 ticks (approximately every second)
+    private final SnapshotRandom random = new SnapshotRandom();
+    // Broad phase for bullet/alien collisions, reused every tick.
+    private final BulletAlienCollider collider = new BulletAlienCollider(WIDTH, HEIGHT);
+
+    // Swarm mode: aliens and bullets spawned every tick (no swarm when aliens is 0).
+    private int swarmAliens;
+    private int swarmBullets;
+    // Runs the entity phases on a pool once there are enough entities to pay for it, or null.
+    private PartitionedTick parallel;
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Starts a new game; the same seed and inputs always produce the same game.
+     */
+    public void reset(long seed) {
+        random.setSeed(seed);
+        // Place the player at the bottom center.
+        player.setPosition(WIDTH / 2 - 20, HEIGHT - 60);
+        bullets.clear();
+        aliens.clear();
+        score = 0;
+        gameOver = false;
+        ticks = 0;
+        leftPressed = false;
+        rightPressed = false;
+        alienSpawnCounter = 0;
+    }
+
+    /**
+     * Switches swarm mode on with the given number of aliens and bullets spawned every tick,
+     * or off with 0 aliens.
+     */
+    public void setSwarm(int aliensPerTick, int bulletsPerTick) {
+        swarmAliens = Math.max(0, aliensPerTick);
+        swarmBullets = Math.max(0, bulletsPerTick);
+    }
+
+    /**
+     * Splits the movement and collision of large crowds over the pool, in the given number
+     * of vertical strips of the world; a null pool keeps everything on the calling thread.
+     * Either way a tick has the same result.
+     */
+    public void setParallel(ForkJoinPool pool, int partitions) {
+        parallel = pool == null ? null : new PartitionedTick(WIDTH, HEIGHT, pool, partitions);
+    }
+
+    public void setLeftPressed(boolean pressed) {
+        leftPressed = pressed;
+    }
+
+    public void setRightPressed(boolean pressed) {
+        rightPressed = pressed;
+    }
+
+    /**
+     * Shoots a bullet from the center-top of the player ship.
+     */
+    public void fire() {
+        int bx = player.getX() + player.getWidth() / 2 - Bullet.WIDTH / 2;
+        int by = player.getY();
+        Bullet.spawn(bullets, bx, by);
+    }
+
+    /**
+     * Updates positions of the player, bullets, and aliens; spawns new aliens; and checks for collisions.
+     */
+    public void tick() {
+        if (gameOver) {
+            return;
+        }
+        ticks++;
+
+        // Update player movement.
+        if (leftPressed) {
+            player.move(-player.getSpeed(), 0, WIDTH);
+        }
+        if (rightPressed) {
+            player.move(player.getSpeed(), 0, WIDTH);
+        }
+
+        // Move bullets and aliens.
+        boolean large = parallel != null && bullets.size() + aliens.size() >= PARALLEL_THRESHOLD;
+        if (large) {
+            parallel.move(bullets, aliens);
+        } else {
+            movement.run();
+        }
+
+        // Drop the bullets that left the top edge.
+        for (int i = bullets.size() - 1; i >= 0; i--) {
+            if (bullets.y[i] < 0) {
+                bullets.remove(i);
+            }
+        }
+
+        // If an alien reaches the bottom, the game is over; a swarm just loses the alien.
+        for (int i = aliens.size() - 1; i >= 0; i--) {
+            if (aliens.y[i] > HEIGHT) {
+                if (swarmAliens > 0) {
+                    aliens.remove(i);
+                } else {
+                    gameOver = true;
+                }
+            }
+        }
+
+        if (swarmAliens > 0) {
+            // Spawn the swarm, and bullets from random points along the bottom edge.
+            for (int i = 0; i < swarmAliens; i++) {
+                spawnAlien();
+            }
+            for (int i = 0; i < swarmBullets; i++) {
+                Bullet.spawn(bullets, random.nextInt(WIDTH - Bullet.WIDTH), HEIGHT);
+            }
+        } else {
+            // Spawn new aliens at fixed intervals.
+            alienSpawnCounter++;
+            if (alienSpawnCounter >= alienSpawnDelay) {
+                spawnAlien();
+                alienSpawnCounter = 0;
+            }
+        }
+
+        // Check for collisions between bullets and aliens.
+        if (large) {
+            score += 10 * parallel.resolveHits(bullets, aliens);
+        } else {
+            score += 10 * collider.resolveHits(bullets, aliens);
+        }
+
+        // Check for collisions between aliens and the player; the ship survives a swarm.
+        for (int i = aliens.size() - 1; i >= 0; i--) {
+            if (aliens.intersects(i, player.getX(), player.getY(), player.getWidth(), player.getHeight())) {
+                if (swarmAliens > 0) {
+                    aliens.remove(i);
+                } else {
+                    gameOver = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the game by up to the given number of ticks without input, or until it is
+     * over, and returns the number of ticks done. The result is exactly the same as calling
+     * tick() that many times, but between events everything moves in one step: only the
+     * ticks in which an alien spawns, a bullet or alien leaves the world, or something hits
+     * something are simulated one by one. When the next hit comes is worked out by sweeping
+     * the boxes along their paths, so a long step cannot pass a bullet through an alien.
+     * A swarm spawns every tick, so it gains nothing from this.
+     */
+    public long fastForward(long maxTicks) {
+        long done = 0;
+        while (done < maxTicks && !gameOver) {
+            if (swarmAliens > 0) {
+                tick();
+                done++;
+                continue;
+            }
+            // The next tick in which something happens; everything before it is just motion.
+            long event = Math.min(maxTicks - done, alienSpawnDelay - alienSpawnCounter);
+            event = Math.min(event, ticksUntilEdge());
+            event = Math.min(event, ticksUntilHit(event));
+            skip(event - 1);
+            tick();
+            done += event;
+        }
+        return done;
+    }
+
+    /**
+     * Returns the number of ticks until the first bullet leaves the top edge or the first
+     * alien the bottom one, counting the tick in which it does.
+     */
+    private long ticksUntilEdge() {
+        long first = Long.MAX_VALUE;
+        for (int i = 0; i < bullets.size(); i++) {
+            first = Math.min(first, Math.floorDiv(bullets.y[i], bullets.speed[i]) + 1);
+        }
+        for (int i = 0; i < aliens.size(); i++) {
+            first = Math.min(first, Math.floorDiv(HEIGHT - aliens.y[i], aliens.speed[i]) + 1);
+        }
+        return first;
+    }
+
+    /**
+     * Returns the first tick, at most limit ticks ahead, in which a bullet overlaps an alien
+     * or an alien the player, or Long.MAX_VALUE if there is none. Nothing moves sideways
+     * but the player, so two entities overlap in the ticks in which their x ranges overlap
+     * and the distance between them along y, which changes by a fixed amount every tick, is
+     * within their heights.
+     */
+    private long ticksUntilHit(long limit) {
+        long first = Long.MAX_VALUE;
+        for (int a = 0; a < aliens.size(); a++) {
+            int ax = aliens.x[a];
+            int aw = aliens.width[a];
+            int ah = aliens.height[a];
+            for (int b = 0; b < bullets.size(); b++) {
+                if (bullets.x[b] < ax + aw && ax < bullets.x[b] + bullets.width[b]) {
+                    first = Math.min(first, firstTickBetween(aliens.y[a] - bullets.y[b],
+                                                             aliens.speed[a] + bullets.speed[b],
+                                                             -ah, bullets.height[b]));
+                }
+            }
+            // The player moves, so the ticks in which the alien is level with it are tried
+            // one by one.
+            int py = player.getY();
+            long from = firstTickBetween(aliens.y[a] - py, aliens.speed[a], -ah, player.getHeight());
+            long to = Math.min(Math.min(limit, first - 1), Math.floorDiv(py + player.getHeight() - aliens.y[a] - 1, aliens.speed[a]));
+            for (long t = from; t <= to; t++) {
+                int px = getPlayerXAfter(t);
+                if (px < ax + aw && ax < px + player.getWidth()) {
+                    first = t;
+                    break;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Returns the first tick t >= 1 in which d + v * t lies strictly between lo and hi, or
+     * Long.MAX_VALUE if there is none: with d the distance along y from one box to another
+     * and v the speed at which it changes, the first tick in which the boxes overlap along y.
+     */
+    private static long firstTickBetween(long d, long v, long lo, long hi) {
+        if (v == 0) {
+            return lo < d && d < hi ? 1 : Long.MAX_VALUE;
+        }
+        if (v < 0) {
+            return firstTickBetween(-d, -v, -hi, -lo);
+        }
+        long from = Math.max(1, Math.floorDiv(lo - d, v) + 1);
+        long to = Math.floorDiv(hi - d - 1, v);
+        return from <= to ? from : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the x the player will have after the given number of ticks with the current
+     * input: each tick moves it left if left is held and then right if right is held, each
+     * time clamped to the world.
+     */
+    private int getPlayerXAfter(long ticks) {
+        int x = player.getX();
+        int maxX = WIDTH - player.getWidth();
+        long distance = player.getSpeed() * ticks;
+        if (ticks == 0 || !leftPressed && !rightPressed) {
+            return x;
+        }
+        if (!rightPressed) {
+            return (int) Math.max(0, x - distance);
+        }
+        if (!leftPressed) {
+            return (int) Math.min(maxX, x + distance);
+        }
+        // Both held: the ship goes back and forth on the spot, unless it is pushed off the
+        // left edge first.
+        return Math.min(maxX, Math.max(0, x - player.getSpeed()) + player.getSpeed());
+    }
+
+    /**
+     * Moves everything on by the given number of ticks in which nothing but motion happens.
+     */
+    private void skip(long n) {
+        if (n <= 0) {
+            return;
+        }
+        ticks += n;
+        player.setPosition(getPlayerXAfter(n), player.getY());
+        Bullet.MOVEMENT.advance(bullets, n);
+        Alien.MOVEMENT.advance(aliens, n);
+        alienSpawnCounter += (int) n;
+    }
+
+    /**
+     * Spawns a new alien at a random horizontal position above the top edge.
+     */
+    private void spawnAlien() {
+        int x = random.nextInt(WIDTH - Alien.WIDTH);
+        int y = -Alien.HEIGHT;
+        Alien.spawn(aliens, x, y);
+    }
+
+    /**
+     * Writes the state of the game to a snapshot. The swarm and parallel settings are how
+     * the game is run, not part of its state, so they are left out.
+     */
+    public void saveState(GameState state) {
+        state.writeLong(ticks);
+        state.writeInt(score);
+        state.writeBoolean(gameOver);
+        state.writeBoolean(leftPressed);
+        state.writeBoolean(rightPressed);
+        state.writeInt(alienSpawnCounter);
+        state.writeRandom(random);
+        state.writeInt(player.getX());
+        state.writeInt(player.getY());
+        bullets.saveState(state);
+        aliens.saveState(state);
+    }
+
+    /**
+     * Puts the game back in a state written by saveState().
+     */
+    public void loadState(GameState state) {
+        ticks = state.readLong();
+        score = state.readInt();
+        gameOver = state.readBoolean();
+        leftPressed = state.readBoolean();
+        rightPressed = state.readBoolean();
+        alienSpawnCounter = state.readInt();
+        state.readRandom(random);
+        player.setPosition(state.readInt(), state.readInt());
+        bullets.loadState(state);
+        aliens.loadState(state);
+    }
+
+    /**
+     * Returns a hash of the game state, the player, bullets and aliens included.
+     */
+    public long checksum() {
+        long hash = ticks;
+        hash = 31 * (31 * hash + player.getX()) + player.getY();
+        hash = 31 * (31 * hash + score) + (gameOver ? 1 : 0);
+        hash = 31 * (31 * hash + (leftPressed ? 1 : 0)) + (rightPressed ? 1 : 0);
+        hash = 31 * hash + alienSpawnCounter;
+        return aliens.hash(bullets.hash(hash));
+    }
+
+    public Player getPlayer() { return player; }
+    public EntityStore getBullets() { return bullets; }
+    public EntityStore getAliens() { return aliens; }
+    public int getScore() { return score; }
+    public boolean isGameOver() { return gameOver; }
+    public long getTicks() { return ticks; }
+    public boolean isSwarm() { return swarmAliens > 0; }
+    public int getSwarmAliens() { return swarmAliens; }
+    public int getSwarmBullets() { return swarmBullets; }
+}
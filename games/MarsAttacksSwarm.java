@@ -0,0 +1,77 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark and check for the swarm mode of MarsAttacksSim. The same seeded swarm is run
+ * on the calling thread and split over a ForkJoinPool, and the checksums of the two are
+ * compared every 100 ticks; any difference fails with an AssertionError. For each it
+ * prints the live entities and the mean, 99th percentile and worst tick time, against
+ * the 16.7 ms of a 60 Hz frame.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java MarsAttacksSwarm.java
+ *   jshell> MarsAttacksSwarm.main(null)
+ *
+ * Optional arguments: aliens and bullets spawned per tick (default 500 and 200, which
+ * settles at about 150,000 live entities), ticks to run (default 1,000) and threads
+ * (default one per processor). The world is split into at least four strips even on a
+ * single processor, so the merge across strips is checked anywhere.
+ */
+public class MarsAttacksSwarm {
+
+    private static final int CHECK_EVERY = 100;
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+
+    public static void main(String[] args) {
+        int aliens = intArg(args, 0, 500);
+        int bullets = intArg(args, 1, 200);
+        int ticks = intArg(args, 2, 1_000);
+        int threads = intArg(args, 3, Runtime.getRuntime().availableProcessors());
+
+        long[] serial = run("1 thread", aliens, bullets, ticks, null, 1, null);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            run(threads + " threads", aliens, bullets, ticks, pool, Math.max(4, threads), serial);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int intArg(String[] args, int i, int otherwise) {
+        return args != null && args.length > i ? Integer.parseInt(args[i]) : otherwise;
+    }
+
+    /**
+     * Runs a swarm and returns its checksums every CHECK_EVERY ticks; if expected is given,
+     * they must match it.
+     */
+    private static long[] run(String name, int aliens, int bullets, int ticks, ForkJoinPool pool, int partitions,
+                              long[] expected) {
+        MarsAttacksSim sim = new MarsAttacksSim();
+        sim.reset(42);
+        sim.setSwarm(aliens, bullets);
+        sim.setParallel(pool, partitions);
+        long[] checksums = new long[ticks / CHECK_EVERY];
+        Histogram times = new Histogram();
+        for (int t = 1; t <= ticks; t++) {
+            long start = System.nanoTime();
+            sim.tick();
+            long elapsed = System.nanoTime() - start;
+            // The first half fills the world up and warms up the JIT.
+            if (t > ticks / 2) {
+                times.record(elapsed);
+            }
+            if (t % CHECK_EVERY == 0) {
+                long checksum = sim.checksum();
+                checksums[t / CHECK_EVERY - 1] = checksum;
+                if (expected != null && checksum != expected[t / CHECK_EVERY - 1]) {
+                    throw new AssertionError(String.format("%s: tick %d ended in state %016x, on one thread in %016x",
+                                                           name, t, checksum, expected[t / CHECK_EVERY - 1]));
+                }
+            }
+        }
+        int live = sim.getAliens().size() + sim.getBullets().size();
+        System.out.printf("%-12s %,9d entities %,9d score  mean %7.2f ms  p99 %7.2f ms  max %7.2f ms  %s 60 Hz%n",
+                          name, live, sim.getScore(), times.getMean() / 1e6, times.getPercentile(99) / 1e6,
+                          times.getMax() / 1e6, times.getPercentile(99) <= FRAME_NANOS ? "within" : "over");
+        return checksums;
+    }
+}
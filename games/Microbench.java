@@ -0,0 +1,117 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * The Microbench class is a small benchmark harness in the spirit of JMH, without any
+ * dependency. A benchmark is timed in iterations of a fixed length after some warmup
+ * iterations; each iteration runs batches of operations, and the benchmark itself loops
+ * over the batch, so the JIT compiles every benchmark loop separately. For every benchmark
+ * it reports the time per operation (mean and standard deviation over the iterations), the
+ * bytes allocated per operation by the benchmark thread, and the collections that ran,
+ * like JMH's -prof gc.
+ */
+class Microbench {
+
+    /** A benchmark body. */
+    interface Benchmark {
+        /**
+         * Runs the operation ops times and returns something derived from the results, so
+         * the JIT cannot remove the work as dead code.
+         */
+        long run(int ops);
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationNanos;
+    // Every result is folded in here and printed at the end, as a blackhole.
+    private long sink;
+
+    public Microbench(int warmupIterations, int iterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    /** Prints the column headers. */
+    public void printHeader() {
+        System.out.printf("%-36s %12s %10s %14s %12s %8s%n",
+                          "benchmark", "ns/op", "stddev", "ops/s", "bytes/op", "gc");
+    }
+
+    /** Runs one benchmark and prints its results. */
+    public void run(String name, Benchmark benchmark) {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(benchmark, null);
+        }
+        double[] nanosPerOp = new double[iterations];
+        long[] opsAndBytes = new long[2];
+        long ops = 0;
+        long bytes = 0;
+        long gcCount = -collections();
+        for (int i = 0; i < iterations; i++) {
+            nanosPerOp[i] = iteration(benchmark, opsAndBytes);
+            ops += opsAndBytes[0];
+            bytes += opsAndBytes[1];
+        }
+        gcCount += collections();
+
+        double mean = 0;
+        for (double value : nanosPerOp) {
+            mean += value / iterations;
+        }
+        double variance = 0;
+        for (double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean) / Math.max(1, iterations - 1);
+        }
+        System.out.printf("%-36s %12.2f %10.2f %,14.0f %12.2f %8d%n",
+                          name, mean, Math.sqrt(variance), 1e9 / mean, (double) bytes / ops, gcCount);
+    }
+
+    /** Returns the combined results of every benchmark, so nothing was dead code. */
+    public long getSink() {
+        return sink;
+    }
+
+    // Runs batches until the iteration time is used up; returns nanoseconds per operation.
+    private double iteration(Benchmark benchmark, long[] opsAndBytes) {
+        int batch = 1;
+        long ops = 0;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long last = start;
+        long elapsed;
+        do {
+            sink += benchmark.run(batch);
+            ops += batch;
+            long now = System.nanoTime();
+            // Grow the batch until it takes about a millisecond, so the clock is read rarely.
+            if (now - last < 1_000_000L && batch < (1 << 24)) {
+                batch *= 2;
+            }
+            last = now;
+            elapsed = now - start;
+        } while (elapsed < iterationNanos);
+        bytes = allocatedBytes() - bytes;
+        if (opsAndBytes != null) {
+            opsAndBytes[0] = ops;
+            opsAndBytes[1] = bytes;
+        }
+        return (double) elapsed / ops;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The Movement class is the system that moves entities along y by their speed every tick:
+ * UP for the bullets and DOWN for the aliens. Frames drawn between two ticks place an
+ * entity back along the same way (drawnY).
+ */
+final class Movement implements EntitySystem {
+    public static final Movement UP = new Movement(-1);
+    public static final Movement DOWN = new Movement(1);
+
+    private final int direction;
+
+    private Movement(int direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public void update(EntityStore store, int from, int to) {
+        int[] y = store.y;
+        int[] speed = store.speed;
+        for (int i = from; i < to; i++) {
+            y[i] += direction * speed[i];
+        }
+    }
+
+    @Override
+    public void update(EntityStore store, int[] ids, int from, int to) {
+        int[] y = store.y;
+        int[] speed = store.speed;
+        for (int k = from; k < to; k++) {
+            int i = ids[k];
+            y[i] += direction * speed[i];
+        }
+    }
+
+    /** Moves every entity of the store on by the given number of ticks at once. */
+    public void advance(EntityStore store, long ticks) {
+        int[] y = store.y;
+        int[] speed = store.speed;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            y[i] += direction * (int) (speed[i] * ticks);
+        }
+    }
+
+    /** Returns the y entity i is drawn at the given number of ticks back along its way. */
+    public int drawnY(EntityStore store, int i, float behind) {
+        return store.y[i] - direction * Math.round(store.speed[i] * behind);
+    }
+}
@@ -0,0 +1,265 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Compares the time and memory it takes to paint a frame of every game, once with the
+ * immediate-mode painting the panels used before (clear, grid lines and ground drawn every
+ * frame, text drawn with drawString/drawChars and measured with FontMetrics), once with
+ * GamePanel.render, which blits cached StaticLayers and draws the HUD from cached glyphs,
+ * and once redrawing and copying only the DirtyRegion the panel reports, as the GameLoop
+ * does. All paths paint the same simulation state into the same kind of target: an
+ * accelerated VolatileImage when a display is available, a BufferedImage when running
+ * headless. Headless, every incrementally drawn frame is also checked pixel by pixel
+ * against a full redraw, and an AssertionError is thrown if any differ.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java PaintBenchmark.java
+ *   jshell> PaintBenchmark.main(null)
+ */
+public class PaintBenchmark {
+
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int MEASURED_FRAMES = 20_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        System.out.println(GraphicsEnvironment.isHeadless() ? "target: BufferedImage (headless)"
+                                                           : "target: VolatileImage");
+        System.out.printf("%-16s %-10s %12s %14s%n", "game", "path", "us/frame", "bytes/frame");
+        snake();
+        dino();
+        mars();
+    }
+
+    private static void snake() {
+        SnakeGame.GamePanel panel = new SnakeGame.GamePanel();
+        SnakeSim sim = panel.getSim();
+        // Immediate painting as SnakeGame.GamePanel.paintComponent used to do it.
+        Font scoreFont = new Font("Ink Free", Font.BOLD, 40);
+        FontMetrics metrics = panel.getFontMetrics(scoreFont);
+        Image apple = oval(25, Color.red);
+        Color body = new Color(45, 180, 0);
+        char[] score = new char[32];
+        Consumer<Graphics2D> immediate = g -> {
+            g.setColor(Color.black);
+            g.fillRect(0, 0, 600, 600);
+            g.setColor(Color.darkGray);
+            for (int i = 0; i < 600 / 25; i++) {
+                g.drawLine(i * 25, 0, i * 25, 600);
+                g.drawLine(0, i * 25, 600, i * 25);
+            }
+            g.drawImage(apple, sim.getAppleX() * 25, sim.getAppleY() * 25, null);
+            g.setColor(Color.green);
+            g.fillRect(sim.getX(0) * 25, sim.getY(0) * 25, 25, 25);
+            g.setColor(body);
+            for (int i = 1; i < sim.getBodyParts(); i++) {
+                g.fillRect(sim.getX(i) * 25, sim.getY(i) * 25, 25, 25);
+            }
+            int length = scoreText(score, sim.getApplesEaten());
+            g.setColor(Color.red);
+            g.setFont(scoreFont);
+            g.drawChars(score, 0, length, (600 - metrics.charsWidth(score, 0, length)) / 2, scoreFont.getSize());
+        };
+        // Keep the snake alive on a long loop around the board so the board is painted.
+        Random random = new Random(1);
+        Runnable step = () -> {
+            if (!sim.isRunning()) {
+                sim.reset(random.nextLong());
+            }
+            sim.step(sim.getX(0) == 0 ? SnakeSim.RIGHT : SnakeSim.LEFT);
+        };
+        compare("SnakeGame", 600, 600, step, immediate, panel);
+    }
+
+    private static void dino() {
+        DinoGame.GamePanel panel = new DinoGame.GamePanel();
+        DinoSim sim = panel.getSim();
+        // Immediate painting as DinoGame.GamePanel.paintComponent used to do it.
+        Color ground = Color.GREEN.darker();
+        Font messageFont = new Font("Arial", Font.BOLD, 36);
+        String message = "Game Over! Press R to Restart.";
+        Consumer<Graphics2D> immediate = g -> {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, DinoSim.WIDTH, DinoSim.HEIGHT);
+            g.setColor(ground);
+            g.fillRect(0, DinoSim.GROUND_Y, DinoSim.WIDTH, DinoSim.HEIGHT - DinoSim.GROUND_Y);
+            sim.getDino().draw(g);
+            Cactus.draw(g, sim.getCacti());
+            if (sim.isGameOver()) {
+                g.setColor(Color.RED);
+                g.setFont(messageFont);
+                int x = (DinoSim.WIDTH - g.getFontMetrics().stringWidth(message)) / 2;
+                g.drawString(message, x, DinoSim.HEIGHT / 2);
+            }
+        };
+        Random random = new Random(2);
+        Runnable step = () -> {
+            if (sim.isGameOver() && random.nextInt(50) == 0) {
+                sim.reset(random.nextLong());
+            }
+            if (random.nextInt(30) == 0) {
+                sim.jump();
+            }
+            sim.tick();
+        };
+        compare("DinoGame", DinoSim.WIDTH, DinoSim.HEIGHT, step, immediate, panel);
+    }
+
+    private static void mars() {
+        MarsAttacksGame.GamePanel panel = new MarsAttacksGame.GamePanel();
+        MarsAttacksSim sim = panel.getSim();
+        // Immediate painting as MarsAttacksGame.GamePanel.paintComponent used to do it.
+        Font scoreFont = new Font("Arial", Font.PLAIN, 14);
+        char[] score = new char[32];
+        Consumer<Graphics2D> immediate = g -> {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, MarsAttacksSim.WIDTH, MarsAttacksSim.HEIGHT);
+            if (!sim.isGameOver()) {
+                sim.getPlayer().draw(g);
+                Bullet.draw(g, sim.getBullets());
+                Alien.draw(g, sim.getAliens());
+                g.setColor(Color.WHITE);
+                g.setFont(scoreFont);
+                g.drawChars(score, 0, scoreText(score, sim.getScore()), 10, 20);
+            }
+        };
+        Random random = new Random(3);
+        Runnable step = () -> {
+            if (sim.isGameOver()) {
+                sim.reset(random.nextLong());
+            }
+            sim.setLeftPressed(random.nextInt(3) == 0);
+            sim.setRightPressed(random.nextInt(3) == 0);
+            if (random.nextInt(4) == 0) {
+                sim.fire();
+            }
+            sim.tick();
+        };
+        compare("MarsAttacksGame", MarsAttacksSim.WIDTH, MarsAttacksSim.HEIGHT, step, immediate, panel);
+    }
+
+    // Steps the game between frames and times every path on the same states, interleaved.
+    // Each path draws into a back buffer and copies what it drew to a screen image, the way
+    // the game loop shows a frame. The incrementally drawn back buffer must stay identical
+    // to a fully redrawn one.
+    private static void compare(String game, int width, int height, Runnable step,
+                                Consumer<Graphics2D> immediate, GameLoop.IncrementalGame panel) {
+        Image back = target(width, height);
+        Image dirtyBack = target(width, height);
+        Image screen = target(width, height);
+        Graphics2D g = (Graphics2D) back.getGraphics();
+        Graphics2D dirtyG = (Graphics2D) dirtyBack.getGraphics();
+        Graphics2D screenG = (Graphics2D) screen.getGraphics();
+        DirtyRegion dirty = new DirtyRegion(width, height);
+        dirty.addAll();
+        long[] nanos = new long[3];
+        long[] bytes = new long[3];
+        long area = 0;
+        int mismatches = 0;
+        for (int i = -WARMUP_FRAMES; i < MEASURED_FRAMES; i++) {
+            step.run();
+            long t0 = System.nanoTime();
+            long b0 = allocatedBytes();
+            immediate.accept(g);
+            screenG.drawImage(back, 0, 0, null);
+            long t1 = System.nanoTime();
+            long b1 = allocatedBytes();
+            panel.render(g);
+            screenG.drawImage(back, 0, 0, null);
+            long t2 = System.nanoTime();
+            long b2 = allocatedBytes();
+            panel.collectDirty(dirty);
+            GameLoop.drawDirty(panel, dirty, dirtyG);
+            dirty.copy(dirtyBack, screenG);
+            long t3 = System.nanoTime();
+            long b3 = allocatedBytes();
+            if (i >= 0) {
+                nanos[0] += t1 - t0;
+                nanos[1] += t2 - t1;
+                nanos[2] += t3 - t2;
+                bytes[0] += b1 - b0;
+                bytes[1] += b2 - b1;
+                bytes[2] += b3 - b2;
+                area += dirty.getArea();
+            }
+            dirty.clear();
+            if (back instanceof BufferedImage && !samePixels((BufferedImage) back, (BufferedImage) dirtyBack)) {
+                mismatches++;
+            }
+        }
+        g.dispose();
+        dirtyG.dispose();
+        screenG.dispose();
+        report(game, "immediate", nanos[0], bytes[0]);
+        report(game, "cached", nanos[1], bytes[1]);
+        report(game, "dirty", nanos[2], bytes[2]);
+        System.out.printf("%-16s %-10s %11.1f%% of the pixels redrawn%n", game, "dirty",
+                          100.0 * area / ((long) width * height * MEASURED_FRAMES));
+        if (mismatches > 0) {
+            throw new AssertionError(game + ": " + mismatches + " incrementally drawn frames differ from full redraws");
+        }
+    }
+
+    private static boolean samePixels(BufferedImage a, BufferedImage b) {
+        return Arrays.equals(((DataBufferInt) a.getRaster().getDataBuffer()).getData(),
+                             ((DataBufferInt) b.getRaster().getDataBuffer()).getData());
+    }
+
+    private static void report(String game, String path, long nanos, long bytes) {
+        System.out.printf("%-16s %-10s %12.2f %14.1f%n", game, path,
+                          nanos / 1e3 / MEASURED_FRAMES, (double) bytes / MEASURED_FRAMES);
+    }
+
+    private static Image target(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleVolatileImage(width, height);
+    }
+
+    private static Image oval(int size, Color color) {
+        BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = sprite.getGraphics();
+        g.setColor(color);
+        g.fillOval(0, 0, size, size);
+        g.dispose();
+        return sprite;
+    }
+
+    // Writes "Score: N" into the buffer and returns its length, like the old ScoreLabel.
+    private static int scoreText(char[] text, int score) {
+        String prefix = "Score: ";
+        prefix.getChars(0, prefix.length(), text, 0);
+        int length = prefix.length();
+        if (score < 0) {
+            text[length++] = '-';
+        }
+        long value = Math.abs((long) score);
+        int end = length;
+        for (long v = value; v >= 10; v /= 10) {
+            end++;
+        }
+        for (int i = end; i >= length; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end + 1;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
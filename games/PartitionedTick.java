@@ -0,0 +1,330 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The PartitionedTick class runs the movement and collision phases of a MarsAttacksSim
+ * tick on a ForkJoinPool, for swarms of a hundred thousand entities and more. The world is
+ * split into vertical strips, and before each phase the entities are sorted into the
+ * strips in one pass on the calling thread, each strip's list in index order; the strips
+ * then only go through their own lists.
+ *
+ * A bullet or alien belongs to the strip its left edge lies in, which moves it; movement
+ * is along y only, so it stays there. For collision every strip builds its own SpatialGrid
+ * over the aliens that reach into it and finds the aliens overlapped by each of its
+ * bullets. An alien across a strip boundary goes into the lists of both strips, so a
+ * bullet sees every alien it overlaps whichever strip it falls in.
+ *
+ * Which bullet destroys which alien is then decided on the calling thread, bullet by
+ * bullet in index order and each taking the lowest alien not yet hit, exactly as
+ * BulletAlienCollider does. The result is therefore the same bit for bit however many
+ * strips and threads there are. The tasks and arrays are reused, so once they have
+ * grown to the size of the swarm a tick allocates nothing.
+ */
+class PartitionedTick {
+    private final ForkJoinPool pool;
+    private final Strip[] strips;
+    private final AllStrips all;
+    // The strip of every x in the world; x left of it is in the first, right of it in the last.
+    private final int[] stripOfX;
+
+    // The stores of the phase in progress, whether it moves them or collides them, and the
+    // widest bullet, by which the strips reach past their right edge for aliens.
+    private EntityStore bullets;
+    private EntityStore aliens;
+    private boolean moving;
+    private int margin;
+
+    // The indices of the bullets and aliens of every strip.
+    private final Buckets bulletBuckets;
+    private final Buckets alienBuckets;
+    // The first and last strip of every entity while it is being sorted into them.
+    private int[] firstStrip = new int[64];
+    private int[] lastStrip = new int[64];
+
+    // Aliens already hit during the merge, always all false outside it, and the bullets
+    // and aliens hit, in the order they are found.
+    private boolean[] alienHit = new boolean[64];
+    private int[] hitBullets = new int[64];
+    private int[] hitAliens = new int[64];
+    // The next result of every strip during the merge.
+    private final int[] cursor;
+
+    /** Creates the tick for a world of the given size, with the given number of strips. */
+    public PartitionedTick(int worldWidth, int worldHeight, ForkJoinPool pool, int partitions) {
+        this.pool = pool;
+        int count = Math.max(1, partitions);
+        strips = new Strip[count];
+        stripOfX = new int[Math.max(1, worldWidth)];
+        for (int p = 0; p < count; p++) {
+            strips[p] = new Strip(p, worldWidth, worldHeight);
+            for (int x = worldWidth * p / count; x < worldWidth * (p + 1) / count; x++) {
+                stripOfX[x] = p;
+            }
+        }
+        bulletBuckets = new Buckets(count);
+        alienBuckets = new Buckets(count);
+        cursor = new int[count];
+        // Like the chunks of VectorEnv, the tasks are reinitialized and run again every phase.
+        all = new AllStrips();
+    }
+
+    /**
+     * Moves the bullets and aliens by their systems, Bullet.MOVEMENT and Alien.MOVEMENT,
+     * every strip its own; the result is the same as running the systems over the stores.
+     */
+    public void move(EntityStore bullets, EntityStore aliens) {
+        sort(bullets, 0, false, bulletBuckets);
+        sort(aliens, 0, false, alienBuckets);
+        run(bullets, aliens, true);
+    }
+
+    /**
+     * Removes every bullet that hits an alien together with the alien it hit and returns the
+     * number of hits, with the same result as BulletAlienCollider.resolveHits.
+     */
+    public int resolveHits(EntityStore bullets, EntityStore aliens) {
+        int bulletCount = bullets.size();
+        int alienCount = aliens.size();
+        if (bulletCount == 0 || alienCount == 0) {
+            return 0;
+        }
+        if (alienHit.length < alienCount) {
+            alienHit = new boolean[Math.max(alienCount, alienHit.length * 2)];
+        }
+        margin = 0;
+        for (int i = 0; i < bulletCount; i++) {
+            margin = Math.max(margin, bullets.width[i]);
+        }
+        sort(bullets, 0, false, bulletBuckets);
+        sort(aliens, margin, true, alienBuckets);
+        run(bullets, aliens, false);
+
+        // Merge the strips in bullet order; each strip lists its bullets in index order.
+        Arrays.fill(cursor, 0);
+        int hits = 0;
+        while (true) {
+            Strip next = null;
+            for (int p = 0; p < strips.length; p++) {
+                Strip strip = strips[p];
+                if (cursor[p] < strip.found
+                        && (next == null || strip.bulletIds[cursor[p]] < next.bulletIds[cursor[next.index]])) {
+                    next = strip;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            int k = cursor[next.index]++;
+            int target = Integer.MAX_VALUE;
+            for (int c = next.starts[k]; c < next.starts[k + 1]; c++) {
+                int id = next.alienIds[c];
+                if (id < target && !alienHit[id]) {
+                    target = id;
+                }
+            }
+            if (target != Integer.MAX_VALUE) {
+                alienHit[target] = true;
+                if (hits == hitBullets.length) {
+                    hitBullets = Arrays.copyOf(hitBullets, hits * 2);
+                    hitAliens = Arrays.copyOf(hitAliens, hits * 2);
+                }
+                hitBullets[hits] = next.bulletIds[k];
+                hitAliens[hits] = target;
+                hits++;
+            }
+        }
+
+        // Remove from the end, in the order BulletAlienCollider does; the hit bullets are
+        // already in index order.
+        Arrays.sort(hitAliens, 0, hits);
+        for (int h = hits - 1; h >= 0; h--) {
+            bullets.remove(hitBullets[h]);
+        }
+        for (int h = hits - 1; h >= 0; h--) {
+            alienHit[hitAliens[h]] = false;
+            aliens.remove(hitAliens[h]);
+        }
+        return hits;
+    }
+
+    // Runs every strip over the stores on the pool, moving or colliding them.
+    private void run(EntityStore bullets, EntityStore aliens, boolean moving) {
+        this.bullets = bullets;
+        this.aliens = aliens;
+        this.moving = moving;
+        all.reinitialize();
+        pool.invoke(all);
+    }
+
+    // Returns the strip x lies in.
+    private int stripOf(int x) {
+        return stripOfX[Math.max(0, Math.min(stripOfX.length - 1, x))];
+    }
+
+    // Sorts the entities of the store into the strips of their left edge, or with spread
+    // into every strip from the one reach to the left of their left edge to the one of
+    // their right edge. Counting first, then filling in index order, keeps every list in
+    // index order.
+    private void sort(EntityStore store, int reach, boolean spread, Buckets buckets) {
+        int n = store.size();
+        if (firstStrip.length < n) {
+            firstStrip = new int[Math.max(n, firstStrip.length * 2)];
+            lastStrip = new int[firstStrip.length];
+        }
+        int[] xs = store.x;
+        int[] widths = store.width;
+        int[] table = stripOfX;
+        int maxX = table.length - 1;
+        int[] firsts = firstStrip;
+        int[] lasts = lastStrip;
+        int[] starts = buckets.starts;
+        Arrays.fill(starts, 0);
+        int total = n;
+        if (spread) {
+            for (int i = 0; i < n; i++) {
+                int first = table[Math.max(0, Math.min(maxX, xs[i] - reach))];
+                int last = table[Math.max(0, Math.min(maxX, xs[i] + widths[i] - 1))];
+                firsts[i] = first;
+                lasts[i] = last;
+                starts[first + 1]++;
+                // Only an entity across a strip boundary is in more than one.
+                for (int p = first + 1; p <= last; p++) {
+                    starts[p + 1]++;
+                    total++;
+                }
+                if (last < first) {
+                    starts[first + 1]--;
+                    total--;
+                }
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                int first = table[Math.max(0, Math.min(maxX, xs[i]))];
+                firsts[i] = first;
+                starts[first + 1]++;
+            }
+        }
+        for (int p = 0; p < strips.length; p++) {
+            starts[p + 1] += starts[p];
+        }
+        if (buckets.ids.length < total) {
+            buckets.ids = new int[Math.max(total, buckets.ids.length * 2)];
+        }
+        int[] ids = buckets.ids;
+        int[] next = cursor;
+        System.arraycopy(starts, 0, next, 0, strips.length);
+        if (spread) {
+            for (int i = 0; i < n; i++) {
+                for (int p = firsts[i]; p <= lasts[i]; p++) {
+                    ids[next[p]++] = i;
+                }
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                ids[next[firsts[i]]++] = i;
+            }
+        }
+    }
+
+    // The indices of the entities of every strip: strip p holds ids[starts[p], starts[p + 1]).
+    private static final class Buckets {
+        final int[] starts;
+        int[] ids = new int[64];
+
+        Buckets(int strips) {
+            starts = new int[strips + 1];
+        }
+    }
+
+    // Runs every strip, each on whichever worker takes it.
+    private class AllStrips extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (Strip strip : strips) {
+                strip.reinitialize();
+            }
+            ForkJoinTask.invokeAll(strips);
+        }
+    }
+
+    // A vertical strip of the world.
+    private class Strip extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        final int index;
+        private final SpatialGrid grid;
+
+        // The bullets of the strip that overlap any alien, in index order, and for bullet k
+        // the aliens it overlaps at alienIds[starts[k]..starts[k + 1]), in no particular
+        // order and possibly twice when found through two cells.
+        int found;
+        int[] bulletIds = new int[64];
+        int[] starts = new int[65];
+        int[] alienIds = new int[64];
+
+        Strip(int index, int worldWidth, int worldHeight) {
+            this.index = index;
+            grid = new SpatialGrid(worldWidth, worldHeight, BulletAlienCollider.CELL_SIZE);
+        }
+
+        @Override
+        protected void compute() {
+            int bulletsFrom = bulletBuckets.starts[index];
+            int bulletsTo = bulletBuckets.starts[index + 1];
+            int aliensFrom = alienBuckets.starts[index];
+            int aliensTo = alienBuckets.starts[index + 1];
+            if (moving) {
+                Bullet.MOVEMENT.update(bullets, bulletBuckets.ids, bulletsFrom, bulletsTo);
+                Alien.MOVEMENT.update(aliens, alienBuckets.ids, aliensFrom, aliensTo);
+            } else {
+                collide(bulletsFrom, bulletsTo, aliensFrom, aliensTo);
+            }
+        }
+
+        // Finds the aliens overlapped by every bullet of the strip.
+        private void collide(int bulletsFrom, int bulletsTo, int aliensFrom, int aliensTo) {
+            EntityStore bullets = PartitionedTick.this.bullets;
+            EntityStore aliens = PartitionedTick.this.aliens;
+            int[] alienList = alienBuckets.ids;
+            grid.clear();
+            for (int k = aliensFrom; k < aliensTo; k++) {
+                int i = alienList[k];
+                grid.insert(i, aliens.x[i], aliens.y[i], aliens.width[i], aliens.height[i]);
+            }
+
+            found = 0;
+            int size = 0;
+            int[] bulletList = bulletBuckets.ids;
+            for (int k = bulletsFrom; k < bulletsTo; k++) {
+                int i = bulletList[k];
+                int bx = bullets.x[i];
+                int by = bullets.y[i];
+                int bw = bullets.width[i];
+                int bh = bullets.height[i];
+                int start = size;
+                int queried = grid.query(bx, by, bw, bh);
+                for (int c = 0; c < queried; c++) {
+                    int id = grid.candidate(c);
+                    if (aliens.intersects(id, bx, by, bw, bh)) {
+                        if (size == alienIds.length) {
+                            alienIds = Arrays.copyOf(alienIds, size * 2);
+                        }
+                        alienIds[size++] = id;
+                    }
+                }
+                if (size > start) {
+                    if (found == bulletIds.length) {
+                        bulletIds = Arrays.copyOf(bulletIds, found * 2);
+                        starts = Arrays.copyOf(starts, found * 2 + 1);
+                    }
+                    bulletIds[found] = i;
+                    starts[found] = start;
+                    starts[++found] = size;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+
+/**
+ * The PerfOverlay class shows the rolling p50, p99 and maximum tick and frame times of a
+ * GameLoop in a corner of the game. The times are kept in RollingHistograms, so the loop
+ * records them without locks and the overlay covers the last one to two seconds. The text
+ * is copied glyph by glyph out of an atlas like ScoreLabel does, so drawing the overlay
+ * does not allocate and does not disturb the numbers it shows.
+ */
+class PerfOverlay {
+    private static final String GLYPHS = " .0123456789acefikmnprstx";
+    private static final String TEMPLATE = "tick  p50 000.00  p99 000.00  max 000.00 ms";
+    // Where the three numbers of a line start.
+    private static final int[] COLUMNS = {10, 22, 34};
+    private static final int NUMBER_WIDTH = 6;
+    private static final long PERIOD_NANOS = 1_000_000_000L;
+    private static final int PADDING = 4;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    // Opaque: filling with a translucent color allocates on every frame.
+    private static final Color BACKGROUND = Color.black;
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, false, false);
+
+    private final RollingHistogram tickTimes = new RollingHistogram(PERIOD_NANOS);
+    private final RollingHistogram frameTimes = new RollingHistogram(PERIOD_NANOS);
+
+    // The atlas, and the left edge of every character of GLYPHS in it (plus the right end).
+    private final BufferedImage atlas;
+    private final int[] edges = new int[GLYPHS.length() + 1];
+    private final int ascent;
+    private final int width;
+    private final char[] tickLine = TEMPLATE.toCharArray();
+    private final char[] frameLine = ("frame" + TEMPLATE.substring(5)).toCharArray();
+
+    private volatile boolean visible;
+
+    public PerfOverlay() {
+        GlyphVector glyphs = FONT.layoutGlyphVector(RENDER_CONTEXT, GLYPHS.toCharArray(), 0, GLYPHS.length(),
+                                                    Font.LAYOUT_LEFT_TO_RIGHT);
+        for (int i = 0; i <= GLYPHS.length(); i++) {
+            edges[i] = (int) Math.round(glyphs.getGlyphPosition(i).getX());
+        }
+        LineMetrics metrics = FONT.getLineMetrics(GLYPHS, RENDER_CONTEXT);
+        ascent = (int) Math.ceil(metrics.getAscent());
+        atlas = new BufferedImage(Math.max(1, edges[GLYPHS.length()]),
+                                  Math.max(1, ascent + (int) Math.ceil(metrics.getDescent())),
+                                  BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(Color.yellow);
+        g.drawGlyphVector(glyphs, 0, ascent);
+        g.dispose();
+
+        int textWidth = 0;
+        for (char c : tickLine) {
+            int i = GLYPHS.indexOf(c);
+            textWidth += edges[i + 1] - edges[i];
+        }
+        width = textWidth + 2 * PADDING;
+    }
+
+    /** Shows or hides the overlay. Safe to call from any thread. */
+    public void toggle() {
+        visible = !visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /** Records how long a tick took, at time now (System.nanoTime()). */
+    public void recordTick(long nanos, long now) {
+        tickTimes.record(nanos, now);
+    }
+
+    /** Records how long a frame took to draw and show, at time now. */
+    public void recordFrame(long nanos, long now) {
+        frameTimes.record(nanos, now);
+    }
+
+    public RollingHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    public RollingHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return 2 * atlas.getHeight() + 2 * PADDING;
+    }
+
+    /** Draws the overlay with its top left corner at (x, y), with the times as of now. */
+    public void draw(Graphics g, int x, int y, long now) {
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, width, getHeight());
+        drawLine(g, tickLine, tickTimes, x + PADDING, y + PADDING, now);
+        drawLine(g, frameLine, frameTimes, x + PADDING, y + PADDING + atlas.getHeight(), now);
+    }
+
+    private void drawLine(Graphics g, char[] line, RollingHistogram times, int x, int top, long now) {
+        write(line, COLUMNS[0], times.getPercentile(50, now));
+        write(line, COLUMNS[1], times.getPercentile(99, now));
+        write(line, COLUMNS[2], times.getMax(now));
+        int height = atlas.getHeight();
+        for (char c : line) {
+            int i = GLYPHS.indexOf(c);
+            int w = edges[i + 1] - edges[i];
+            if (c != ' ') {
+                g.drawImage(atlas, x, top, x + w, top + height, edges[i], 0, edges[i + 1], height, null);
+            }
+            x += w;
+        }
+    }
+
+    // Writes nanos as milliseconds with two decimals, right aligned in the column.
+    private static void write(char[] line, int column, long nanos) {
+        long hundredths = Math.min(nanos / 10_000, 99_999);
+        int pos = column + NUMBER_WIDTH - 1;
+        for (int digit = 0; pos >= column; digit++, pos--) {
+            if (digit == 2) {
+                line[pos] = '.';
+            } else if (digit > 3 && hundredths == 0) {
+                line[pos] = ' ';
+            } else {
+                line[pos] = (char) ('0' + hundredths % 10);
+                hundredths /= 10;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import java.awt.Color;
+import java.awt.Graphics;
+
+/**
+ * The Player class represents the user-controlled ship.
+ */
+class Player {
+    private int x, y, width, height;
+    private int speed = 5;
+
+    public Player(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Moves the player horizontally while keeping within the panel bounds.
+     */
+    public void move(int dx, int dy, int panelWidth) {
+        x += dx;
+        if (x < 0) {
+            x = 0;
+        }
+        if (x + width > panelWidth) {
+            x = panelWidth - width;
+        }
+    }
+
+    /**
+     * Moves the player to the given position.
+     */
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Draws the player as a blue rectangle.
+     */
+    public void draw(Graphics g) {
+        draw(g, x);
+    }
+
+    /**
+     * Draws the player at the given x, for frames between two ticks.
+     */
+    public void draw(Graphics g, int drawX) {
+        g.setColor(Color.BLUE);
+        g.fillRect(drawX, y, width, height);
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
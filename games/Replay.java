@@ -0,0 +1,120 @@
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Replays recorded sessions headless, ticking as fast as the game allows instead of at its
+ * timestep, and prints the checksum of the final state. If the log was closed properly it
+ * holds the checksum of the recorded game, and a replay that ends anywhere else fails with
+ * an AssertionError. Replaying the same log on two versions of a game shows whether they
+ * behave the same, and how fast each one ticks through a real session.
+ *
+ * Start a game with a seed and a log file to record a session; closing the window ends it:
+ *
+ *   > java -cp /tmp/games SnakeGame 42 snake.log
+ *   > java -cp /tmp/games Replay snake.log
+ *
+ * Without arguments it records a long session of random key events for every game and
+ * replays that, as a check that replays are deterministic.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java Replay.java
+ *   jshell> Replay.main(null)
+ */
+public class Replay {
+
+    private static final String[] GAMES = {"SnakeGame", "DinoGame", "MarsAttacksGame"};
+    private static final int[] KEYS = {KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_UP, KeyEvent.VK_DOWN,
+                                       KeyEvent.VK_SPACE, KeyEvent.VK_R, KeyEvent.VK_A};
+    private static final long RECORDED_TICKS = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        if (args != null && args.length > 0) {
+            for (String file : args) {
+                replay(Path.of(file));
+            }
+            return;
+        }
+        for (int i = 0; i < GAMES.length; i++) {
+            Path file = Files.createTempFile(GAMES[i], ".log");
+            try {
+                record(GAMES[i], file, i + 1);
+                replay(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /** Replays one log and returns the checksum of the final state. */
+    public static long replay(Path file) throws IOException {
+        InputLog log = new InputLog(file);
+        InputLog.Replayable game = create(log.getGame());
+        long keys = 0;
+        long start = System.nanoTime();
+        game.newSession(log.getSeed());
+        while (log.next()) {
+            while (game.getSessionTicks() < log.getTick()) {
+                game.tick();
+            }
+            if (!log.isEnd()) {
+                game.input(log.getKeyCode(), log.isPressed());
+                keys++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long checksum = game.checksum();
+        System.out.printf("%-16s %,12d ticks %,9d keys %,10d bytes %9.1f ms %,14.0f ticks/s  checksum %016x%n",
+                          log.getGame(), game.getSessionTicks(), keys, Files.size(file), elapsed / 1e6,
+                          game.getSessionTicks() / (elapsed / 1e9), checksum);
+        if (log.hasChecksum() && checksum != log.getChecksum()) {
+            throw new AssertionError(String.format("%s: the replay ended in state %016x, the recording in %016x",
+                                                   file, checksum, log.getChecksum()));
+        }
+        return checksum;
+    }
+
+    /**
+     * Returns a fresh panel of the game a log was recorded under; panels tick, take input
+     * and render without a window.
+     */
+    static InputLog.Replayable create(String game) {
+        if (game.startsWith("SnakeGame ")) {
+            String[] size = game.substring("SnakeGame ".length()).split("x");
+            return new SnakeGame.GamePanel(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        }
+        if (game.startsWith("MarsAttacksGame swarm=")) {
+            return new MarsAttacksGame.GamePanel(game.substring("MarsAttacksGame swarm=".length()));
+        }
+        switch (game) {
+            case "SnakeGame":
+                return new SnakeGame.GamePanel();
+            case "DinoGame":
+                return new DinoGame.GamePanel();
+            case "MarsAttacksGame":
+                return new MarsAttacksGame.GamePanel();
+            default:
+                throw new IllegalArgumentException("Unknown game " + game);
+        }
+    }
+
+    // Plays a session of random key events and records it the way the game window does.
+    private static void record(String name, Path file, long seed) throws IOException {
+        InputLog.Replayable game = create(name);
+        Random random = new Random(seed);
+        InputRecorder recorder = new InputRecorder(file, name, seed);
+        game.newSession(seed);
+        for (long t = 0; t < RECORDED_TICKS; t++) {
+            if (random.nextInt(8) == 0) {
+                int key = KEYS[random.nextInt(KEYS.length)];
+                boolean pressed = random.nextInt(3) != 0;
+                if (game.input(key, pressed)) {
+                    recorder.record(game.getSessionTicks(), key, pressed);
+                }
+            }
+            game.tick();
+        }
+        recorder.finish(game.getSessionTicks(), game.checksum());
+    }
+}
@@ -0,0 +1,235 @@
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures what a RewindBuffer costs every game, and checks that it rewinds exactly. Each
+ * game plays a session of random key events, as Replay records them, once on its own and
+ * once through a buffer holding 60 seconds of it at the game's tick rate. Random keys would
+ * end a game of Snake in a few dozen ticks, and nothing restarts Snake, so it is steered
+ * with the arrow keys along a cycle through every cell instead, which only ends with the
+ * board full; a new session starts then. The report gives what the buffer adds to the time
+ * of a tick, snapshots included, the bytes the history takes per second of play, and how
+ * long a rewind takes.
+ *
+ * The session through the buffer then keeps the checksum of every tick, rewinds again and
+ * again to a random tick of the history and plays on from there; the game must be back in
+ * exactly the state it had at that tick, otherwise it fails with an AssertionError.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java RewindBuffer.java RewindBenchmark.java
+ *   jshell> RewindBenchmark.main(null)
+ *
+ * Optional arguments set the ticks each way is timed over in each round (default 300,000)
+ * and the ticks between two snapshots in all games (default 16 in Snake and 64 in Dino and
+ * Mars Attacks).
+ */
+public class RewindBenchmark {
+
+    private static final String[] GAMES = {"SnakeGame", "DinoGame", "MarsAttacksGame"};
+    private static final int[] TICK_MILLIS = {75, DinoSim.TICK_MILLIS, 20};
+    // The keys pressed at random in every game; Snake is steered by snakeKey() instead.
+    private static final int[][] KEYS = {{},
+                                         {KeyEvent.VK_SPACE, KeyEvent.VK_R},
+                                         {KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_SPACE, KeyEvent.VK_R}};
+    // Ticks between two snapshots in every game: about fifty snapshots in 60 seconds of
+    // history, which is three groups of a keyframe and the deltas that follow it.
+    private static final int[] INTERVALS = {16, 64, 64};
+    private static final int HISTORY_SECONDS = 60;
+    private static final int BUDGET_BYTES = 4 << 20;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 15;
+    private static final int REWINDS = 2_000;
+
+    public static void main(String[] args) {
+        long ticks = args != null && args.length > 0 ? Long.parseLong(args[0]) : 300_000;
+
+        for (int i = 0; i < GAMES.length; i++) {
+            int interval = args != null && args.length > 1 ? Integer.parseInt(args[1]) : INTERVALS[i];
+            int historyTicks = HISTORY_SECONDS * 1000 / TICK_MILLIS[i];
+            InputLog.Replayable plain = create(GAMES[i]);
+            RewindBuffer buffer = new RewindBuffer(create(GAMES[i]), historyTicks, interval, BUDGET_BYTES);
+
+            // The game plays the same session on its own and through the buffer in turn, first
+            // while the JIT compiles both ways and then in the rounds that are timed. The cost
+            // of the buffer is the median of what it added in each round, so the rounds the
+            // machine was busy with something else do not count.
+            long[] plainNanos = new long[ROUNDS];
+            long[] addedNanos = new long[ROUNDS];
+            for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                long expected = play(plain, KEYS[i], ticks, i + 1);
+                long middle = System.nanoTime();
+                long actual = play(buffer, KEYS[i], ticks, i + 1);
+                long stop = System.nanoTime();
+                if (actual != expected) {
+                    throw new AssertionError(String.format("%s: the session ended in another state through the buffer",
+                                                           GAMES[i]));
+                }
+                if (round >= 0) {
+                    plainNanos[round] = middle - start;
+                    addedNanos[round] = (stop - middle) - (middle - start);
+                }
+            }
+            double tickNanos = (double) median(plainNanos) / ticks;
+            double addedTickNanos = (double) median(addedNanos) / ticks;
+            long span = buffer.getGame().getSessionTicks() - buffer.getOldestTick();
+            double bytesPerSecond = buffer.getBytesUsed() * 1000.0 / (span * TICK_MILLIS[i]);
+
+            System.out.printf("%-16s snapshot every %d ticks, %,d of them in %,d bytes for %.1f s of history%n",
+                              GAMES[i], interval, buffer.getSnapshots(), buffer.getBytesUsed(),
+                              span * TICK_MILLIS[i] / 1000.0);
+            System.out.printf("  tick %,5.0f ns, buffer %,5.0f ns more, %.0f%% of the tick; %,.0f ns per snapshot%n",
+                              tickNanos, addedTickNanos, 100 * addedTickNanos / tickNanos, addedTickNanos * interval);
+            System.out.printf("  %,.0f bytes per second of history, %.1f per tick%n", bytesPerSecond,
+                              (double) buffer.getBytesUsed() / span);
+            System.out.printf("  rewind %,9.0f ns on average, %,d rewinds all matched%n",
+                              checkRewinds(buffer, KEYS[i], historyTicks, interval, i + 1), REWINDS);
+        }
+    }
+
+    // Plays ticks of key events and returns the checksum at the end.
+    private static long play(InputLog.Replayable game, int[] keys, long ticks, long seed) {
+        Random random = new Random(seed);
+        long session = seed;
+        game.newSession(session);
+        for (long t = 0; t < ticks; t++) {
+            if (isOver(game)) {
+                game.newSession(++session);
+            }
+            int key = nextKey(game, keys, random);
+            if (key >= 0) {
+                game.input(key >>> 1, (key & 1) == 0);
+            }
+            game.tick();
+        }
+        return game.checksum();
+    }
+
+    // Plays the same session through the buffer.
+    private static long play(RewindBuffer buffer, int[] keys, long ticks, long seed) {
+        InputLog.Replayable game = buffer.getGame();
+        Random random = new Random(seed);
+        long session = seed;
+        buffer.newSession(session);
+        for (long t = 0; t < ticks; t++) {
+            if (isOver(game)) {
+                buffer.newSession(++session);
+            }
+            int key = nextKey(game, keys, random);
+            if (key >= 0) {
+                buffer.input(key >>> 1, (key & 1) == 0);
+            }
+            buffer.tick();
+        }
+        return game.checksum();
+    }
+
+    // The middle one of the values, which it sorts.
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    // The key event to apply before the next tick, as the key code shifted left by one with
+    // the low bit set for a release, or -1 for none.
+    private static int nextKey(InputLog.Replayable game, int[] keys, Random random) {
+        if (game instanceof SnakeGame.GamePanel) {
+            return snakeKey(((SnakeGame.GamePanel) game).getSim());
+        }
+        if (random.nextInt(8) != 0) {
+            return -1;
+        }
+        return keys[random.nextInt(keys.length)] << 1 | (random.nextInt(3) != 0 ? 0 : 1);
+    }
+
+    // Steers the snake along a cycle through every cell of a board with an even number of
+    // rows: right along the top row, then row by row down the board between the second and
+    // the last column, and back up the first column. Presses an arrow key only to turn.
+    private static int snakeKey(SnakeSim sim) {
+        int x = sim.getX(0);
+        int y = sim.getY(0);
+        int lastX = sim.getCols() - 1;
+        char wanted;
+        if (y == 0) {
+            wanted = x < lastX ? SnakeSim.RIGHT : SnakeSim.DOWN;
+        } else if (x == 0) {
+            wanted = SnakeSim.UP;
+        } else if (y % 2 == 1) {
+            wanted = x > 1 || y == sim.getRows() - 1 ? SnakeSim.LEFT : SnakeSim.DOWN;
+        } else {
+            wanted = x < lastX ? SnakeSim.RIGHT : SnakeSim.DOWN;
+        }
+        if (wanted == sim.getDirection()) {
+            return -1;
+        }
+        switch (wanted) {
+            case SnakeSim.UP:
+                return KeyEvent.VK_UP << 1;
+            case SnakeSim.DOWN:
+                return KeyEvent.VK_DOWN << 1;
+            case SnakeSim.LEFT:
+                return KeyEvent.VK_LEFT << 1;
+            default:
+                return KeyEvent.VK_RIGHT << 1;
+        }
+    }
+
+    // Whether the session has ended for good: Snake cannot be restarted with a key.
+    private static boolean isOver(InputLog.Replayable game) {
+        return game instanceof SnakeGame.GamePanel && !((SnakeGame.GamePanel) game).getSim().isRunning();
+    }
+
+    // Plays on with the buffer, rewinding to random ticks of the history and checking the
+    // state there against the one played, and returns the average time of a rewind.
+    private static double checkRewinds(RewindBuffer buffer, int[] keys, int historyTicks, int interval, long seed) {
+        InputLog.Replayable game = buffer.getGame();
+        Random random = new Random(seed);
+        long session = seed;
+        buffer.newSession(session);
+        // The buffer keeps up to a group of snapshots more than the history it was asked for.
+        long[] checksums = new long[historyTicks + (RewindBuffer.KEYFRAME_INTERVAL + 2) * interval];
+        checksums[0] = game.checksum();
+        long rewindNanos = 0;
+        for (int rewinds = 0; rewinds < REWINDS; ) {
+            if (isOver(game)) {
+                // A new session starts at tick 0 with a history of its own.
+                buffer.newSession(++session);
+                checksums[0] = game.checksum();
+            }
+            int key = nextKey(game, keys, random);
+            if (key >= 0) {
+                buffer.input(key >>> 1, (key & 1) == 0);
+            }
+            buffer.tick();
+            long tick = game.getSessionTicks();
+            checksums[(int) (tick % checksums.length)] = game.checksum();
+            if (tick > historyTicks && random.nextInt(historyTicks / 4) == 0) {
+                long target = buffer.getOldestTick() + (long) (random.nextDouble() * (tick - buffer.getOldestTick()));
+                long start = System.nanoTime();
+                buffer.rewindTo(target);
+                rewindNanos += System.nanoTime() - start;
+                rewinds++;
+                long expected = checksums[(int) (target % checksums.length)];
+                if (game.checksum() != expected || game.getSessionTicks() != target) {
+                    throw new AssertionError(String.format("%s: rewound to tick %d in state %016x, played %016x",
+                                                           game.getClass().getName(), target, game.checksum(),
+                                                           expected));
+                }
+            }
+        }
+        return (double) rewindNanos / REWINDS;
+    }
+
+    private static InputLog.Replayable create(String game) {
+        switch (game) {
+            case "SnakeGame":
+                return new SnakeGame.GamePanel();
+            case "DinoGame":
+                return new DinoGame.GamePanel();
+            case "MarsAttacksGame":
+                return new MarsAttacksGame.GamePanel();
+            default:
+                throw new IllegalArgumentException("Unknown game " + game);
+        }
+    }
+}
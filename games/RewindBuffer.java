@@ -0,0 +1,394 @@
+import java.util.Arrays;
+
+/**
+ * The RewindBuffer class keeps the recent history of a game session in a fixed amount of
+ * memory, so the session can be rewound to any tick of it: for debugging, or for a search
+ * that branches from a past state. Ticks and key events go to the game through the buffer,
+ * which takes a snapshot (GameState) every interval ticks and notes the key events between
+ * them.
+ *
+ * Snapshots and key events are stored as varints in one ring of bytes. Every
+ * KEYFRAME_INTERVAL-th snapshot is a keyframe, stored whole; the others only store how
+ * they differ from the snapshot before, as the XOR of every int with the int in the same
+ * place: a run of unchanged ints takes a byte, and a small change a byte or two. A run of
+ * changes that starts with a large one, like packed fields or the bits of a float, is
+ * stored as plain ints instead, which are quicker to write. Once the keyframe after it is
+ * older than the history, or when the ring is full, the oldest keyframe is dropped together
+ * with the snapshots that depend on it. A history of fewer than KEYFRAME_INTERVAL snapshots
+ * has a keyframe every time it has been filled instead, so a group never outlasts it by
+ * more than its own length.
+ *
+ * Rewinding to a tick decodes the last keyframe before it and the deltas up to the last
+ * snapshot at or before the tick, loads that into the game and replays the key events and
+ * ticks from there. That is at most KEYFRAME_INTERVAL snapshots and interval ticks however
+ * long the history is. Everything that happened after the tick is dropped.
+ */
+class RewindBuffer {
+    public static final int KEYFRAME_INTERVAL = 16;
+
+    private final InputLog.Replayable game;
+    private final int historyTicks;
+    private final int interval;
+    private final int keyframeInterval;
+
+    // The ring of bytes, and the positions of its first and past its last byte, counted
+    // from the start of the session; its length is a power of two, so a position masked
+    // is an index.
+    private final byte[] bytes;
+    private final int mask;
+    private long start;
+    private long end;
+    private long position;
+
+    // The snapshots in the ring, oldest first: the tick each was taken at, where it starts
+    // and whether it is a keyframe. They are kept in a ring of their own.
+    private final long[] frameTicks;
+    private final long[] frameStarts;
+    private final boolean[] keyframes;
+    private int firstFrame;
+    private int frameCount;
+
+    // The last snapshot, which the next one is stored as a delta of, and the one being
+    // taken, which becomes the last once it is stored.
+    private GameState previous = new GameState();
+    private GameState state = new GameState();
+    private int sinceKeyframe;
+    private int untilSnapshot;
+
+    /**
+     * Creates a buffer for the game that keeps up to historyTicks of it, taking a snapshot
+     * every interval ticks, in budgetBytes bytes, which must be a power of two.
+     */
+    public RewindBuffer(InputLog.Replayable game, int historyTicks, int interval, int budgetBytes) {
+        if (interval < 1 || historyTicks < interval) {
+            throw new IllegalArgumentException("Cannot keep " + historyTicks + " ticks in snapshots every " + interval);
+        }
+        if (Integer.bitCount(budgetBytes) != 1) {
+            throw new IllegalArgumentException("The budget of " + budgetBytes + " bytes is not a power of two");
+        }
+        this.game = game;
+        this.historyTicks = historyTicks;
+        this.interval = interval;
+        keyframeInterval = Math.min(KEYFRAME_INTERVAL, historyTicks / interval);
+        bytes = new byte[budgetBytes];
+        mask = budgetBytes - 1;
+        // Whole groups of a keyframe and its deltas are dropped at once, so keep one more.
+        int frames = historyTicks / interval + keyframeInterval + 1;
+        frameTicks = new long[frames];
+        frameStarts = new long[frames];
+        keyframes = new boolean[frames];
+    }
+
+    /** Starts a new session of the game and forgets the history of the previous one. */
+    public void newSession(long seed) {
+        game.newSession(seed);
+        start = 0;
+        end = 0;
+        firstFrame = 0;
+        frameCount = 0;
+        capture();
+    }
+
+    /** Applies a key event to the game and notes it if it did something. */
+    public boolean input(int keyCode, boolean pressed) {
+        startHistory();
+        if (!game.input(keyCode, pressed)) {
+            return false;
+        }
+        makeRoom(12, false, false);
+        long ticks = game.getSessionTicks() - frameTicks[frame(frameCount - 1)];
+        end = writeVarint(writeVarint(end, ticks), keyCode << 1 | (pressed ? 0 : 1));
+        return true;
+    }
+
+    /** Advances the game by one tick, taking a snapshot if one is due. */
+    public void tick() {
+        startHistory();
+        game.tick();
+        if (--untilSnapshot == 0) {
+            capture();
+        }
+    }
+
+    /**
+     * Puts the game back to where it was after the given tick of the session, which must be
+     * between getOldestTick() and now, and drops the history after it.
+     */
+    public void rewindTo(long tick) {
+        if (tick < getOldestTick() || tick > game.getSessionTicks()) {
+            throw new IllegalArgumentException("Tick " + tick + " is outside the history, ticks "
+                                               + getOldestTick() + " to " + game.getSessionTicks());
+        }
+        // The last snapshot at or before the tick, and the keyframe it depends on.
+        int low = 0;
+        int high = frameCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (frameTicks[frame(middle)] <= tick) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int last = low;
+        int first = last;
+        while (!keyframes[frame(first)]) {
+            first--;
+        }
+        for (int i = first; i <= last; i++) {
+            position = frameStarts[frame(i)];
+            decode(keyframes[frame(i)]);
+        }
+        sinceKeyframe = last - first;
+        untilSnapshot = interval - (int) (tick - frameTicks[frame(last)]);
+        previous.rewind();
+        game.loadState(previous);
+
+        // Replay the key events up to the tick; those at the tick itself come after it.
+        long frameTick = frameTicks[frame(last)];
+        long limit = last + 1 < frameCount ? frameStarts[frame(last + 1)] : end;
+        while (position < limit) {
+            long mark = position;
+            long eventTick = frameTick + readVarint();
+            int key = (int) readVarint();
+            if (eventTick >= tick) {
+                position = mark;
+                break;
+            }
+            while (game.getSessionTicks() < eventTick) {
+                game.tick();
+            }
+            game.input(key >>> 1, (key & 1) == 0);
+        }
+        while (game.getSessionTicks() < tick) {
+            game.tick();
+        }
+        end = position;
+        frameCount = last + 1;
+    }
+
+    /** Rewinds the game by the given number of ticks, or as far as the history goes. */
+    public void rewind(long ticks) {
+        rewindTo(Math.max(getOldestTick(), game.getSessionTicks() - ticks));
+    }
+
+    /**
+     * Returns the earliest tick the game can be rewound to: historyTicks ago, or the start
+     * of the history if that is later.
+     */
+    public long getOldestTick() {
+        long now = game.getSessionTicks();
+        return frameCount == 0 ? now : Math.max(frameTicks[firstFrame], now - historyTicks);
+    }
+
+    /** Returns the number of bytes the history takes up now. */
+    public long getBytesUsed() {
+        return end - start;
+    }
+
+    /** Returns the number of snapshots in the history. */
+    public int getSnapshots() {
+        return frameCount;
+    }
+
+    public InputLog.Replayable getGame() {
+        return game;
+    }
+
+    // Takes the first snapshot of a game that was started without newSession, so the key
+    // events and ticks from here on have one to count from; the history starts now.
+    private void startHistory() {
+        if (frameCount == 0) {
+            capture();
+        }
+    }
+
+    // Takes a snapshot of the game and adds it to the ring, as a delta of the previous one
+    // unless a keyframe is due.
+    private void capture() {
+        state.clear();
+        game.saveState(state);
+        int size = state.size();
+        int[] words = state.words();
+        boolean keyframe = frameCount == 0 || sinceKeyframe == keyframeInterval - 1;
+        // A varint of an int takes at most 5 bytes, and every run at most 10 more.
+        makeRoom(5 + 15L * size, true, keyframe);
+        int slot = frame(frameCount++);
+        frameTicks[slot] = game.getSessionTicks();
+        frameStarts[slot] = end;
+        keyframes[slot] = keyframe;
+        sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+        untilSnapshot = interval;
+
+        // Ints past the end of the snapshot before count as 0, and a keyframe is the delta of
+        // nothing. Runs of unchanged ints are found with Arrays.mismatch, which compares
+        // many ints at a time.
+        int[] before = previous.words();
+        int common = keyframe ? 0 : Math.min(size, previous.size());
+        long at = writeVarint(end, size);
+        for (int i = 0; i < size; ) {
+            int unchanged = i;
+            if (i < common) {
+                int mismatch = Arrays.mismatch(words, i, common, before, i, common);
+                i = mismatch < 0 ? common : i + mismatch;
+            }
+            if (i >= common) {
+                while (i < size && words[i] == 0) {
+                    i++;
+                }
+            }
+            int changed = i;
+            while (i < size && words[i] != (i < common ? before[i] : 0)) {
+                i++;
+            }
+            at = writeVarint(at, changed - unchanged);
+            if (i == changed) {
+                at = writeVarint(at, 0);
+                continue;
+            }
+            // A run whose first change would take four bytes or more as a varint is stored
+            // as plain ints; the low bit of its length tells which.
+            int first = words[changed] ^ (changed < common ? before[changed] : 0);
+            boolean plain = (first << 1 ^ first >> 31) >>> 21 != 0;
+            at = writeVarint(at, (i - changed) << 1 | (plain ? 1 : 0));
+            for (int j = changed; j < i; j++) {
+                int xor = words[j] ^ (j < common ? before[j] : 0);
+                if (plain) {
+                    at = writeInt(at, xor);
+                } else {
+                    at = writeVarint(at, xor << 1 ^ xor >> 31);
+                }
+            }
+        }
+        end = at;
+        // The snapshot just stored is the one the next is a delta of; the old one is reused.
+        GameState stored = state;
+        state = previous;
+        previous = stored;
+
+        // A rewind to the oldest tick of the history starts from the last keyframe at or
+        // before it, so the groups before that one are no longer needed.
+        long oldest = game.getSessionTicks() - historyTicks;
+        int next = nextKeyframe();
+        while (next < frameCount && frameTicks[frame(next)] <= oldest) {
+            drop(next);
+            next = nextKeyframe();
+        }
+    }
+
+    // Decodes the snapshot at position into previous, applying it to the snapshot there
+    // unless it is a keyframe.
+    private void decode(boolean keyframe) {
+        int size = (int) readVarint();
+        int beforeSize = keyframe ? 0 : previous.size();
+        int[] words = previous.resize(size);
+        for (int i = beforeSize; i < size; i++) {
+            words[i] = 0;
+        }
+        for (int i = 0; i < size; ) {
+            i += (int) readVarint();
+            int run = (int) readVarint();
+            for (int j = run >>> 1; j > 0; j--, i++) {
+                if ((run & 1) != 0) {
+                    words[i] ^= readInt();
+                } else {
+                    int zigzag = (int) readVarint();
+                    words[i] ^= zigzag >>> 1 ^ -(zigzag & 1);
+                }
+            }
+        }
+    }
+
+    // Drops the oldest groups of snapshots until the given number of bytes fits, and a
+    // snapshot if one is to be added. Before a keyframe the whole history may go.
+    private void makeRoom(long needed, boolean snapshot, boolean keyframe) {
+        while (bytes.length - (end - start) < needed || snapshot && frameCount == frameTicks.length) {
+            int next = nextKeyframe();
+            if (next >= frameCount && keyframe && frameCount > 0) {
+                firstFrame = frame(frameCount);
+                frameCount = 0;
+                start = end;
+                continue;
+            }
+            if (next >= frameCount) {
+                throw new IllegalStateException("A rewind buffer of " + bytes.length + " bytes cannot hold "
+                                                + keyframeInterval + " snapshots of this game");
+            }
+            drop(next);
+        }
+    }
+
+    // Returns the index of the first keyframe after the oldest snapshot, or frameCount if
+    // there is none.
+    private int nextKeyframe() {
+        int next = 1;
+        while (next < frameCount && !keyframes[frame(next)]) {
+            next++;
+        }
+        return next;
+    }
+
+    // Drops the given number of the oldest snapshots, up to a keyframe.
+    private void drop(int count) {
+        firstFrame = frame(count);
+        frameCount -= count;
+        start = frameStarts[firstFrame];
+    }
+
+    // Slot of the given snapshot in the ring of snapshots; 0 is the oldest.
+    private int frame(int i) {
+        int slot = firstFrame + i;
+        return slot < frameTicks.length ? slot : slot - frameTicks.length;
+    }
+
+    // Writes the value as a varint at the given position and returns the position past it.
+    // The capture loop keeps its position in a local instead of going through end.
+    private long writeVarint(long at, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[(int) at++ & mask] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[(int) at++ & mask] = (byte) value;
+        return at;
+    }
+
+    // The same for an int, taken as unsigned: the zigzag of a 32-bit XOR.
+    private long writeVarint(long at, int value) {
+        int index = (int) at;
+        while ((value & ~0x7F) != 0) {
+            bytes[index++ & mask] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[index++ & mask] = (byte) value;
+        return at + (index - (int) at);
+    }
+
+    // Writes the int as four bytes, lowest first, and returns the position past it.
+    private long writeInt(long at, int value) {
+        int index = (int) at;
+        bytes[index & mask] = (byte) value;
+        bytes[index + 1 & mask] = (byte) (value >>> 8);
+        bytes[index + 2 & mask] = (byte) (value >>> 16);
+        bytes[index + 3 & mask] = (byte) (value >>> 24);
+        return at + 4;
+    }
+
+    private int readInt() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            value |= (bytes[(int) position++ & mask] & 0xFF) << shift;
+        }
+        return value;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[(int) position++ & mask];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The RollingHistogram class records durations in nanoseconds over a rolling time window
+ * and can be read from any thread without locks. Values go into log-linear buckets (16 per
+ * power of two, about 6% apart, from 1 microsecond to about 17 seconds). There are two
+ * windows of counts: the one for the current period and the one for the period before, so
+ * a reader always sees between one and two periods of data.
+ *
+ * There must only be one writer thread. A reader racing with the writer clearing a window
+ * may see a few values too many or too few, which is fine for display.
+ */
+class RollingHistogram {
+    private static final int UNIT_SHIFT = 10; // Bucket values in units of 1024 ns.
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = 22 * SUB;
+
+    private final long periodNanos;
+    private final AtomicLongArray[] counts = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+    private final AtomicLongArray max = new AtomicLongArray(2);
+    // The period each window currently holds.
+    private final AtomicLongArray period = new AtomicLongArray(new long[]{-1, -1});
+
+    public RollingHistogram(long periodNanos) {
+        this.periodNanos = periodNanos;
+    }
+
+    /** Adds one value, recorded at time now (System.nanoTime()). */
+    public void record(long nanos, long now) {
+        long p = now / periodNanos;
+        int w = (int) (p & 1);
+        if (period.get(w) != p) {
+            // A new period starts in this window: forget what it held two periods ago.
+            AtomicLongArray window = counts[w];
+            for (int i = 0; i < BUCKETS; i++) {
+                window.lazySet(i, 0);
+            }
+            max.lazySet(w, 0);
+            period.set(w, p);
+        }
+        counts[w].incrementAndGet(index(nanos));
+        if (nanos > max.get(w)) {
+            max.lazySet(w, nanos);
+        }
+    }
+
+    /** Returns the number of values in the last one to two periods. */
+    public long getCount(long now) {
+        long count = 0;
+        for (int w = 0; w < 2; w++) {
+            if (isRecent(w, now)) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    count += counts[w].get(i);
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Returns the largest value in the last one to two periods. */
+    public long getMax(long now) {
+        long result = 0;
+        for (int w = 0; w < 2; w++) {
+            if (isRecent(w, now)) {
+                result = Math.max(result, max.get(w));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the upper bound of the bucket holding the given percentile (0-100). */
+    public long getPercentile(double percentile, long now) {
+        long count = getCount(now);
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        boolean first = isRecent(0, now);
+        boolean second = isRecent(1, now);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += (first ? counts[0].get(i) : 0) + (second ? counts[1].get(i) : 0);
+            if (seen >= rank) {
+                return Math.min(getMax(now), upperBound(i));
+            }
+        }
+        return getMax(now);
+    }
+
+    private boolean isRecent(int w, long now) {
+        return period.get(w) >= now / periodNanos - 1;
+    }
+
+    private static int index(long nanos) {
+        long v = Math.max(0, nanos) >>> UNIT_SHIFT;
+        if (v < SUB) {
+            return (int) v;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(v);
+        int i = (octave - SUB_BITS + 1) * SUB + (int) ((v >>> (octave - SUB_BITS)) & (SUB - 1));
+        return Math.min(i, BUCKETS - 1);
+    }
+
+    private static long upperBound(int i) {
+        if (i < SUB) {
+            return (long) (i + 1) << UNIT_SHIFT;
+        }
+        int octave = i / SUB + SUB_BITS - 1;
+        long sub = i % SUB;
+        return (SUB + sub + 1) << (octave - SUB_BITS) << UNIT_SHIFT;
+    }
+}
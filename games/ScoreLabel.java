@@ -0,0 +1,114 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+
+/**
+ * The ScoreLabel class draws the "Score: N" text of a game from cached glyphs. The prefix,
+ * the digits and the minus sign are laid out once as a GlyphVector and rasterized into an
+ * atlas image; a frame then copies the prefix and one region per digit out of the atlas.
+ * Drawing a GlyphVector, or laying out a new one when the score changes, would allocate,
+ * while copying image regions does not.
+ */
+class ScoreLabel {
+    private static final String PREFIX = "Score: ";
+    private static final String GLYPHS = PREFIX + "0123456789-";
+    // Plain, unscaled rendering: the games draw text without antialiasing or transforms.
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, false, false);
+
+    // The atlas, and the left edge of every character of GLYPHS in it (plus the right end).
+    private final BufferedImage atlas;
+    private final int[] edges = new int[GLYPHS.length() + 1];
+    private final int ascent;
+
+    // Atlas indices of the digits of the current score, sign included.
+    private final int[] digits = new int[11];
+    private int length;
+    private int score;
+    private int width;
+
+    public ScoreLabel(Font font, Color color) {
+        GlyphVector glyphs = font.layoutGlyphVector(RENDER_CONTEXT, GLYPHS.toCharArray(), 0, GLYPHS.length(),
+                                                    Font.LAYOUT_LEFT_TO_RIGHT);
+        for (int i = 0; i <= GLYPHS.length(); i++) {
+            edges[i] = (int) Math.round(glyphs.getGlyphPosition(i).getX());
+        }
+        LineMetrics metrics = font.getLineMetrics(GLYPHS, RENDER_CONTEXT);
+        ascent = (int) Math.ceil(metrics.getAscent());
+        atlas = new BufferedImage(Math.max(1, edges[GLYPHS.length()]),
+                                  Math.max(1, ascent + (int) Math.ceil(metrics.getDescent())),
+                                  BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(color);
+        g.drawGlyphVector(glyphs, 0, ascent);
+        g.dispose();
+        write(0);
+    }
+
+    /** Updates the text if the score changed. */
+    public void setScore(int score) {
+        if (score != this.score) {
+            write(score);
+        }
+    }
+
+    /** Returns the advance width of the text. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the distance from the top of the text to its baseline. */
+    public int getAscent() {
+        return ascent;
+    }
+
+    /** Returns the height of the text, ascent and descent included. */
+    public int getHeight() {
+        return atlas.getHeight();
+    }
+
+    /** Draws the text with its baseline at (x, y), like Graphics.drawString. */
+    public void draw(Graphics g, int x, int y) {
+        int top = y - ascent;
+        x += copy(g, 0, edges[PREFIX.length()], x, top);
+        for (int i = 0; i < length; i++) {
+            x += copy(g, edges[digits[i]], edges[digits[i] + 1], x, top);
+        }
+    }
+
+    // Copies the atlas columns from..to to (x, top) and returns their width.
+    private int copy(Graphics g, int from, int to, int x, int top) {
+        int height = atlas.getHeight();
+        g.drawImage(atlas, x, top, x + to - from, top + height, from, 0, to, height, null);
+        return to - from;
+    }
+
+    // Looks up the atlas index of every digit of the score, and the new width.
+    private void write(int score) {
+        this.score = score;
+        long value = Math.abs((long) score);
+        int count = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            count++;
+        }
+        int pos = 0;
+        if (score < 0) {
+            digits[pos++] = GLYPHS.length() - 1;
+        }
+        length = pos + count;
+        for (int i = length - 1; i >= pos; i--) {
+            digits[i] = PREFIX.length() + (int) (value % 10);
+            value /= 10;
+        }
+        width = edges[PREFIX.length()];
+        for (int i = 0; i < length; i++) {
+            width += edges[digits[i] + 1] - edges[digits[i]];
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * The SnakeAutopilot class plays Snake. Before every tick it searches the board with A*
+ * for a path from the head to the apple and takes its first step, if the tail can still be
+ * reached from that step; otherwise it follows the snake's own tail, which keeps it alive
+ * until the apple becomes safe to get. The search state is kept in arrays with one entry
+ * per cell, allocated once, and a stamp per cell tells which search wrote it, so nothing
+ * is cleared or allocated per decision.
+ */
+class SnakeAutopilot {
+    private static final char[] DIRECTIONS = {SnakeSim.UP, SnakeSim.DOWN, SnakeSim.LEFT, SnakeSim.RIGHT};
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    private final SnakeSim sim;
+    private final int cols;
+    private final int rows;
+
+    // Per cell: 2 * search once reached and 2 * search + 1 once expanded by that search,
+    // the length of the best path found to it, and the first step of that path.
+    private final int[] stamp;
+    private final int[] distance;
+    private final byte[] firstStep;
+    // Cells waiting to be expanded whose estimated path length is the current bound, and
+    // those at the bound + 2; with unit steps and the Manhattan distance as the estimate,
+    // no other value can occur, so these two stacks are the whole priority queue.
+    private int[] open;
+    private int[] next;
+    private int search;
+
+    public SnakeAutopilot(SnakeSim sim) {
+        this.sim = sim;
+        this.cols = sim.getCols();
+        this.rows = sim.getRows();
+        int cells = cols * rows;
+        stamp = new int[cells];
+        distance = new int[cells];
+        firstStep = new byte[cells];
+        open = new int[cells];
+        next = new int[cells];
+    }
+
+    /** Returns the direction the snake should take on the next tick. */
+    public char decide() {
+        int headX = sim.getX(0);
+        int headY = sim.getY(0);
+        int tailX = sim.getX(sim.getBodyParts() - 1);
+        int tailY = sim.getY(sim.getBodyParts() - 1);
+        int step = search(headX, headY, sim.getAppleX(), sim.getAppleY());
+        if (step >= 0 && search(headX + DX[step], headY + DY[step], tailX, tailY) >= 0) {
+            return DIRECTIONS[step];
+        }
+        step = search(headX, headY, tailX, tailY);
+        if (step >= 0) {
+            return DIRECTIONS[step];
+        }
+        // Trapped: take any free cell and hope the body moves out of the way in time.
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if (isFree(headX + DX[d], headY + DY[d])) {
+                return DIRECTIONS[d];
+            }
+        }
+        return sim.getDirection();
+    }
+
+    /**
+     * Searches for a path over free cells from (fromX, fromY) to the target and returns the
+     * index of its first step, or -1 if there is none. The target may be a body cell, the
+     * tail, which can be entered from the second step on because it moves away by then.
+     */
+    private int search(int fromX, int fromY, int targetX, int targetY) {
+        if (++search == Integer.MAX_VALUE / 2) {
+            Arrays.fill(stamp, 0);
+            search = 1;
+        }
+        int reached = 2 * search;
+        int expanded = reached + 1;
+        int target = targetY * cols + targetX;
+        int bound = Math.abs(targetX - fromX) + Math.abs(targetY - fromY);
+        int openSize = 0;
+        int nextSize = 0;
+
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int x = fromX + DX[d];
+            int y = fromY + DY[d];
+            if (!isFree(x, y)) {
+                continue;
+            }
+            int c = y * cols + x;
+            stamp[c] = reached;
+            distance[c] = 1;
+            firstStep[c] = (byte) d;
+            if (1 + Math.abs(targetX - x) + Math.abs(targetY - y) == bound) {
+                open[openSize++] = c;
+            } else {
+                next[nextSize++] = c;
+            }
+        }
+
+        while (true) {
+            if (openSize == 0) {
+                if (nextSize == 0) {
+                    return -1;
+                }
+                int[] swap = open;
+                open = next;
+                next = swap;
+                openSize = nextSize;
+                nextSize = 0;
+                bound += 2;
+            }
+            int c = open[--openSize];
+            if (stamp[c] == expanded) {
+                // Already expanded through a shorter path.
+                continue;
+            }
+            if (c == target) {
+                return firstStep[c];
+            }
+            stamp[c] = expanded;
+            int cx = c % cols;
+            int cy = c / cols;
+            int d2 = distance[c] + 1;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int x = cx + DX[d];
+                int y = cy + DY[d];
+                if (x < 0 || x >= cols || y < 0 || y >= rows) {
+                    continue;
+                }
+                int n = y * cols + x;
+                if (sim.isOccupied(x, y) && !(n == target && d2 > 1)) {
+                    continue;
+                }
+                if (stamp[n] >= reached && distance[n] <= d2) {
+                    continue;
+                }
+                stamp[n] = reached;
+                distance[n] = d2;
+                firstStep[n] = firstStep[c];
+                if (d2 + Math.abs(targetX - x) + Math.abs(targetY - y) == bound) {
+                    open[openSize++] = n;
+                } else {
+                    next[nextSize++] = n;
+                }
+            }
+        }
+    }
+
+    private boolean isFree(int x, int y) {
+        return x >= 0 && x < cols && y >= 0 && y < rows && !sim.isOccupied(x, y);
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The SnakeEnv class adapts a SnakeSim to VectorEnv. Actions 0-3 turn the snake up, down,
+ * left or right. The observation is the usual compact one for Snake agents:
+ *
+ *   0-2   danger (wall or body) one cell straight ahead, to the right and to the left
+ *   3-6   the direction of travel, one-hot: up, down, left, right
+ *   7-10  whether the apple is up, down, left or right of the head
+ *
+ * The reward is 1 for an apple, -1 for dying and 0 otherwise. An episode also ends when the
+ * snake has gone once around the whole board without eating, so looping agents finish.
+ */
+class SnakeEnv implements VectorEnv.Env {
+    public static final int OBSERVATION_SIZE = 11;
+    public static final int ACTIONS = 4;
+
+    private static final char[] DIRECTIONS = {SnakeSim.UP, SnakeSim.DOWN, SnakeSim.LEFT, SnakeSim.RIGHT};
+
+    private final SnakeSim sim;
+    private long lastAppleTick;
+    private boolean starved;
+
+    public SnakeEnv(int cols, int rows) {
+        sim = new SnakeSim(cols, rows);
+    }
+
+    @Override
+    public void reset(long seed) {
+        sim.reset(seed);
+        lastAppleTick = 0;
+        starved = false;
+    }
+
+    @Override
+    public float step(int action) {
+        int reward = sim.step(DIRECTIONS[action]);
+        if (reward == SnakeSim.REWARD_APPLE) {
+            lastAppleTick = sim.getTicks();
+        } else if (sim.getTicks() - lastAppleTick > (long) sim.getCols() * sim.getRows()) {
+            starved = true;
+        }
+        return reward;
+    }
+
+    @Override
+    public boolean isDone() {
+        return !sim.isRunning() || starved;
+    }
+
+    @Override
+    public void observe(float[] obs, int offset) {
+        int headX = sim.getX(0);
+        int headY = sim.getY(0);
+        // Straight ahead as a step (dx, dy); right of that is (-dy, dx) in screen coordinates.
+        int dx = 0;
+        int dy = 0;
+        switch (sim.getDirection()) {
+            case SnakeSim.UP:
+                dy = -1;
+                break;
+            case SnakeSim.DOWN:
+                dy = 1;
+                break;
+            case SnakeSim.LEFT:
+                dx = -1;
+                break;
+            default:
+                dx = 1;
+                break;
+        }
+        obs[offset] = danger(headX + dx, headY + dy);
+        obs[offset + 1] = danger(headX - dy, headY + dx);
+        obs[offset + 2] = danger(headX + dy, headY - dx);
+        obs[offset + 3] = dy < 0 ? 1 : 0;
+        obs[offset + 4] = dy > 0 ? 1 : 0;
+        obs[offset + 5] = dx < 0 ? 1 : 0;
+        obs[offset + 6] = dx > 0 ? 1 : 0;
+        obs[offset + 7] = sim.getAppleY() < headY ? 1 : 0;
+        obs[offset + 8] = sim.getAppleY() > headY ? 1 : 0;
+        obs[offset + 9] = sim.getAppleX() < headX ? 1 : 0;
+        obs[offset + 10] = sim.getAppleX() > headX ? 1 : 0;
+    }
+
+    private float danger(int cellX, int cellY) {
+        boolean outside = cellX < 0 || cellY < 0 || cellX >= sim.getCols() || cellY >= sim.getRows();
+        return outside || sim.isOccupied(cellX, cellY) ? 1 : 0;
+    }
+
+    public SnakeSim getSim() {
+        return sim;
+    }
+}
@@ -1,247 +1,479 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
-import java.util.Random;
 
 public class SnakeGame extends JFrame {
+    private static final long serialVersionUID = 1L;
 
     public SnakeGame() {
+        this(null);
+    }
+
+    /**
+     * Creates the game window; args are [seed [log file]] for a deterministic, recorded session.
+     * The board is as large as the window unless the system property snake.board sets the
+     * number of cells across and down, up to 10,000; the view then scrolls with the snake.
+     */
+    public SnakeGame(String[] args) {
         // Add the game panel to the JFrame
-        add(new GamePanel());
+        int board = Integer.getInteger("snake.board", GamePanel.VIEW_CELLS);
+        GamePanel panel = new GamePanel(board, board);
+        panel.startSession(args);
+        add(panel);
         setResizable(false);
         pack(); // Sizes the frame so that all its contents are at or above their preferred sizes.
         setTitle("Snake Game");
         setLocationRelativeTo(null); // Centers the window on the screen.
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Stop the game loop (and report its timing) before the application exits.
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                panel.stopGame();
+            }
+        });
     }
 
     public static void main(String[] args) {
         // Launch the GUI on the Event Dispatch Thread
         EventQueue.invokeLater(() -> {
-            JFrame ex = new SnakeGame();
+            JFrame ex = new SnakeGame(args);
             ex.setVisible(true);
         });
     }
-}
 
-/**
- * The GamePanel class contains the game logic, drawing, and keyboard controls.
- */
-class GamePanel extends JPanel implements ActionListener {
-
-    // Constants for the game board
-    private final int SCREEN_WIDTH = 600;
-    private final int SCREEN_HEIGHT = 600;
-    private final int UNIT_SIZE = 25;  // Size of the grid unit (and snake part)
-    private final int GAME_UNITS = (SCREEN_WIDTH * SCREEN_HEIGHT) / (UNIT_SIZE * UNIT_SIZE);
-    private final int DELAY = 75;      // Timer delay (in milliseconds)
-
-    // Arrays to hold the x and y coordinates of all snake segments
-    private final int x[] = new int[GAME_UNITS];
-    private final int y[] = new int[GAME_UNITS];
-
-    // Initial snake properties
-    private int bodyParts = 6;
-    private int applesEaten;
-    private int appleX;
-    private int appleY;
-    private char direction = 'R'; // R = right, L = left, U = up, D = down
-    private boolean running = false;
-    private javax.swing.Timer timer;
-    private Random random;
-
-    public GamePanel() {
-        random = new Random();
-        // Set the size and background of the game panel
-        setPreferredSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
-        setBackground(Color.black);
-        setFocusable(true);
-        addKeyListener(new MyKeyAdapter());
-        startGame();
-    }
+    /**
+     * The GamePanel class draws the simulation and forwards keyboard controls to it. It is a
+     * GameCanvas, whose loop also ticks the simulation. After a single tick only the old and
+     * new head, the old tail, the apple and the score need redrawing, so that is all the
+     * panel reports as changed.
+     *
+     * Boards larger than the screen are shown through a view that jumps to put the head in
+     * the middle whenever it comes near an edge. Only the cells in the view are drawn, so a
+     * frame costs the same on any board and with a snake of any length.
+     */
+    static class GamePanel extends GameCanvas {
+        private static final long serialVersionUID = 1L;
 
-    /** Starts the game by creating the first apple and starting the timer. */
-    public void startGame() {
-        newApple();
-        running = true;
-        timer = new javax.swing.Timer(DELAY, this);
-        timer.start();
-    }
+        // Constants for the game board
+        static final int VIEW_CELLS = 24;  // Cells across and down the screen
+        private final int UNIT_SIZE = 25;  // Size of the grid unit (and snake part)
+        private static final int DELAY = 75; // Tick length (in milliseconds)
+        private final int VIEW_MARGIN = 3; // How close the head gets to the edge of the view
+        // The autopilot needs about 17 bytes per cell, so it is only offered up to this size.
+        private final int AUTOPILOT_MAX_CELLS = 1 << 21;
 
-    /** Paints the game components. */
-    @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        draw(g);
-    }
+        // Size of the screen, which shows the whole board or VIEW_CELLS x VIEW_CELLS of it.
+        private final int SCREEN_WIDTH;
+        private final int SCREEN_HEIGHT;
+        private final int viewCols;
+        private final int viewRows;
 
-    /** Draws the grid, apple, snake, and score. */
-    public void draw(Graphics g) {
-        if (running) {
-            // Optionally, draw a grid (for visual aid)
-            for (int i = 0; i < SCREEN_HEIGHT / UNIT_SIZE; i++) {
-                g.setColor(Color.darkGray);
-                g.drawLine(i * UNIT_SIZE, 0, i * UNIT_SIZE, SCREEN_HEIGHT);
-                g.drawLine(0, i * UNIT_SIZE, SCREEN_WIDTH, i * UNIT_SIZE);
-            }
+        // Colors, fonts and text are created once so painting does not allocate.
+        private final Color BODY_COLOR = new Color(45, 180, 0);
+        private final Font SCORE_FONT = new Font("Ink Free", Font.BOLD, 40);
+        private final TextSprite GAME_OVER_TEXT = new TextSprite("Game Over", new Font("Ink Free", Font.BOLD, 75), Color.red);
+        // The apple is drawn from a prerendered sprite because fillOval allocates on every call.
+        private final BufferedImage APPLE_SPRITE = ovalSprite(UNIT_SIZE, Color.red);
+        private final ScoreLabel scoreLabel = new ScoreLabel(SCORE_FONT, Color.red);
+        // The background and grid never change, so they are cached and blitted in one go;
+        // the view moves by whole cells, so the grid stays put.
+        private final StaticLayer BOARD_LAYER;
+        // Reused to read the clip, so only the cells being redrawn are looked at.
+        private final Rectangle clip = new Rectangle();
 
-            // Draw the apple
-            g.setColor(Color.red);
-            g.fillOval(appleX, appleY, UNIT_SIZE, UNIT_SIZE);
-
-            // Draw the snake
-            for (int i = 0; i < bodyParts; i++) {
-                if (i == 0) {
-                    // Draw the head in a brighter color
-                    g.setColor(Color.green);
-                    g.fillRect(x[i], y[i], UNIT_SIZE, UNIT_SIZE);
-                } else {
-                    // Draw the body with a slightly different green
-                    g.setColor(new Color(45, 180, 0));
-                    g.fillRect(x[i], y[i], UNIT_SIZE, UNIT_SIZE);
-                }
-            }
+        // The game state lives in a headless simulation; the panel only renders it.
+        private final SnakeSim sim;
 
-            // Draw the score at the top center of the screen
-            g.setColor(Color.red);
-            g.setFont(new Font("Ink Free", Font.BOLD, 40));
-            FontMetrics metrics = getFontMetrics(g.getFont());
-            g.drawString("Score: " + applesEaten,
-                         (SCREEN_WIDTH - metrics.stringWidth("Score: " + applesEaten)) / 2,
-                         g.getFont().getSize());
-        } else {
-            gameOver(g);
-        }
-    }
+        // Arrow keys not acted on yet, oldest first. Each tick takes at most one turn from
+        // here, so two quick presses turn the snake on two ticks instead of the second one
+        // overriding the first and reversing it into its own neck.
+        private final char[] turns = new char[3];
+        private int turnCount;
 
-    /** Randomly positions a new apple on the game board. */
-    public void newApple() {
-        appleX = random.nextInt(SCREEN_WIDTH / UNIT_SIZE) * UNIT_SIZE;
-        appleY = random.nextInt(SCREEN_HEIGHT / UNIT_SIZE) * UNIT_SIZE;
-    }
+        // Steers the snake instead of the arrow keys while switched on with A; created the
+        // first time it is.
+        private SnakeAutopilot autopilot;
+        private boolean autopilotOn;
+
+        // The cell in the top left corner of the view.
+        private int viewX, viewY;
 
-    /** Moves the snake by shifting the body parts and moving the head in the current direction. */
-    public void move() {
-        // Shift the coordinates of each body part to the position of the previous one
-        for (int i = bodyParts; i > 0; i--) {
-            x[i] = x[i - 1];
-            y[i] = y[i - 1];
-        }
-
-        // Update the head's coordinates based on the current direction
-        switch (direction) {
-            case 'U':
-                y[0] = y[0] - UNIT_SIZE;
-                break;
-            case 'D':
-                y[0] = y[0] + UNIT_SIZE;
-                break;
-            case 'L':
-                x[0] = x[0] - UNIT_SIZE;
-                break;
-            case 'R':
-                x[0] = x[0] + UNIT_SIZE;
-                break;
+        // Where the head and the tail were before the last tick, and how far frames draw them
+        // on the way from there (see setInterpolation).
+        private int fromHeadX, fromHeadY, fromTailX, fromTailY;
+        private float alpha = 1;
+
+        // What the last rendered frame showed, to work out what changed since.
+        private long shownTicks = -1;
+        private int shownViewX, shownViewY;
+        private boolean shownRunning;
+        private int shownHeadX, shownHeadY, shownTailX, shownTailY;
+        private int shownFromHeadX, shownFromHeadY, shownFromTailX, shownFromTailY;
+        private float shownAlpha;
+        private int shownAppleX, shownAppleY;
+        private int shownScore, shownScoreWidth;
+
+        public GamePanel() {
+            this(VIEW_CELLS, VIEW_CELLS);
         }
-    }
 
-    /** Checks if the snake's head has reached the apple. */
-    public void checkApple() {
-        if ((x[0] == appleX) && (y[0] == appleY)) {
-            bodyParts++;
-            applesEaten++;
-            newApple();
+        /** Creates a panel playing on a board of the given number of cells. */
+        public GamePanel(int cols, int rows) {
+            super(DELAY);
+            viewCols = Math.min(cols, VIEW_CELLS);
+            viewRows = Math.min(rows, VIEW_CELLS);
+            SCREEN_WIDTH = viewCols * UNIT_SIZE;
+            SCREEN_HEIGHT = viewRows * UNIT_SIZE;
+            BOARD_LAYER = new StaticLayer(SCREEN_WIDTH, SCREEN_HEIGHT, Transparency.OPAQUE, this::drawBoard);
+            sim = new SnakeSim(cols, rows);
+            // Set the size and background of the game panel
+            setPreferredSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
+            setBackground(Color.black);
+            newSession(System.nanoTime());
         }
-    }
 
-    /** Checks for collisions with the snake's body or the screen boundaries. */
-    public void checkCollisions() {
-        // Check if the head collides with the body
-        for (int i = bodyParts; i > 0; i--) {
-            if ((x[0] == x[i]) && (y[0] == y[i])) {
-                running = false;
-            }
+        /**
+         * Returns the name the game is recorded under: "SnakeGame" on a board the size of
+         * the screen, and for example "SnakeGame 10000x10000" on any other.
+         */
+        @Override
+        String getGameName() {
+            boolean standard = sim.getCols() == VIEW_CELLS && sim.getRows() == VIEW_CELLS;
+            return standard ? "SnakeGame" : "SnakeGame " + sim.getCols() + "x" + sim.getRows();
         }
 
-        // Check if the head touches the left border
-        if (x[0] < 0) {
-            running = false;
+        /** Writes the session, the pending turns and the autopilot switch to a snapshot. */
+        @Override
+        public void saveState(GameState state) {
+            sim.saveState(state);
+            state.writeLong(sessionTicks);
+            state.writeBoolean(autopilotOn);
+            state.writeInt(turnCount);
+            for (int i = 0; i < turnCount; i++) {
+                state.writeInt(turns[i]);
+            }
         }
-        // Check if the head touches the right border
-        if (x[0] >= SCREEN_WIDTH) {
-            running = false;
+
+        /** Puts the session back in a state written by saveState(). */
+        @Override
+        public void loadState(GameState state) {
+            sim.loadState(state);
+            sessionTicks = state.readLong();
+            autopilotOn = state.readBoolean();
+            if (autopilotOn && autopilot == null) {
+                autopilot = new SnakeAutopilot(sim);
+            }
+            turnCount = state.readInt();
+            for (int i = 0; i < turnCount; i++) {
+                turns[i] = (char) state.readInt();
+            }
+            holdPositions();
         }
-        // Check if the head touches the top border
-        if (y[0] < 0) {
-            running = false;
+
+        /** Starts a new game; there is no restart, so the seed is that of the one game. */
+        @Override
+        public synchronized void newSession(long seed) {
+            sim.reset(seed);
+            sessionTicks = 0;
+            autopilotOn = false;
+            turnCount = 0;
+            holdPositions();
         }
-        // Check if the head touches the bottom border
-        if (y[0] >= SCREEN_HEIGHT) {
-            running = false;
+
+        /** Advances the game by one tick. */
+        @Override
+        protected void step() {
+            takeTurn();
+            if (autopilotOn && sim.isRunning()) {
+                sim.turn(autopilot.decide());
+            }
+            holdPositions();
+            sim.tick();
         }
 
-        // Stop the timer if the game is no longer running
-        if (!running) {
-            timer.stop();
+        /** Draws the head and tail the given part of the way through the last tick. */
+        @Override
+        public void setInterpolation(float alpha) {
+            this.alpha = alpha;
         }
-    }
 
-    /** Displays the "Game Over" screen along with the final score. */
-    public void gameOver(Graphics g) {
-        // Display the score
-        g.setColor(Color.red);
-        g.setFont(new Font("Ink Free", Font.BOLD, 40));
-        FontMetrics metrics1 = getFontMetrics(g.getFont());
-        g.drawString("Score: " + applesEaten,
-                     (SCREEN_WIDTH - metrics1.stringWidth("Score: " + applesEaten)) / 2,
-                     g.getFont().getSize());
-
-        // Display "Game Over" text
-        g.setColor(Color.red);
-        g.setFont(new Font("Ink Free", Font.BOLD, 75));
-        FontMetrics metrics2 = getFontMetrics(g.getFont());
-        g.drawString("Game Over",
-                     (SCREEN_WIDTH - metrics2.stringWidth("Game Over")) / 2,
-                     SCREEN_HEIGHT / 2);
-    }
+        // Takes the head and tail where they are as the start of their next move.
+        private void holdPositions() {
+            fromHeadX = sim.getX(0);
+            fromHeadY = sim.getY(0);
+            fromTailX = sim.getX(sim.getBodyParts() - 1);
+            fromTailY = sim.getY(sim.getBodyParts() - 1);
+        }
 
-    /** The game loop: called on each timer tick. */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (running) {
-            move();
-            checkApple();
-            checkCollisions();
+        // How far through the last tick frames draw the snake; a snake that did not move
+        // is drawn where it is.
+        private float drawnAlpha() {
+            return fromHeadX == sim.getX(0) && fromHeadY == sim.getY(0) ? 1 : alpha;
         }
-        repaint();
-    }
 
-    /** KeyAdapter to listen for arrow key inputs to change the snake's direction. */
-    public class MyKeyAdapter extends KeyAdapter {
+        /** Turns the snake for an arrow key press, and switches the autopilot on and off with A. */
         @Override
-        public void keyPressed(KeyEvent e) {
-            switch (e.getKeyCode()) {
-                case KeyEvent.VK_LEFT:
-                    if (direction != 'R') {
-                        direction = 'L';
+        public boolean input(int keyCode, boolean pressed) {
+            if (!pressed) {
+                return false;
+            }
+            switch (keyCode) {
+                case KeyEvent.VK_A:
+                    if ((long) sim.getCols() * sim.getRows() > AUTOPILOT_MAX_CELLS) {
+                        return false;
                     }
-                    break;
-                case KeyEvent.VK_RIGHT:
-                    if (direction != 'L') {
-                        direction = 'R';
+                    if (autopilot == null) {
+                        autopilot = new SnakeAutopilot(sim);
                     }
-                    break;
+                    autopilotOn = !autopilotOn;
+                    return true;
+                case KeyEvent.VK_LEFT:
+                    return queueTurn(SnakeSim.LEFT);
+                case KeyEvent.VK_RIGHT:
+                    return queueTurn(SnakeSim.RIGHT);
                 case KeyEvent.VK_UP:
-                    if (direction != 'D') {
-                        direction = 'U';
-                    }
-                    break;
+                    return queueTurn(SnakeSim.UP);
                 case KeyEvent.VK_DOWN:
-                    if (direction != 'U') {
-                        direction = 'D';
+                    return queueTurn(SnakeSim.DOWN);
+                default:
+                    return false;
+            }
+        }
+
+        /** Queues a turn for the coming ticks; returns false if three are already waiting. */
+        private boolean queueTurn(char direction) {
+            if (turnCount == turns.length) {
+                return false;
+            }
+            turns[turnCount++] = direction;
+            return true;
+        }
+
+        /**
+         * Applies the oldest queued turn that changes the direction of the snake, dropping
+         * the ones before it that would not (the way it already goes, or straight back).
+         */
+        private void takeTurn() {
+            char before = sim.getDirection();
+            int taken = 0;
+            while (taken < turnCount && sim.getDirection() == before) {
+                sim.turn(turns[taken++]);
+            }
+            System.arraycopy(turns, taken, turns, 0, turnCount - taken);
+            turnCount -= taken;
+        }
+
+        @Override
+        public long checksum() {
+            return sim.checksum();
+        }
+
+        /** Returns the simulation shown by the panel. */
+        SnakeSim getSim() {
+            return sim;
+        }
+
+        /** Fills in the tick and snake length of a flight recorder event. */
+        @Override
+        public void describe(GameEvent event) {
+            event.game = "SnakeGame";
+            event.tick = sim.getTicks();
+            event.bodyParts = sim.getBodyParts();
+        }
+
+        /** Renders one frame; called by the game loop. */
+        @Override
+        public void render(Graphics2D g) {
+            followHead();
+            if (sim.isRunning()) {
+                BOARD_LAYER.draw(g, 0, 0);
+            } else {
+                g.setColor(getBackground());
+                g.fillRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+            }
+            draw(g);
+        }
+
+        /** Reports the cells and text that changed since the last rendered frame. */
+        @Override
+        public void collectDirty(DirtyRegion dirty) {
+            followHead();
+            long ticks = sim.getTicks();
+            float drawn = drawnAlpha();
+            if (ticks == shownTicks && sim.isRunning() == shownRunning && drawn == shownAlpha) {
+                return;
+            }
+            if (ticks != shownTicks && ticks != shownTicks + 1 || !sim.isRunning() || !shownRunning
+                    || viewX != shownViewX || viewY != shownViewY) {
+                // A new game, several ticks in one frame, the game over screen, or the view moved.
+                dirty.addAll();
+            } else {
+                // The head and the tail are drawn across the cells they move between.
+                addCell(dirty, shownFromHeadX, shownFromHeadY);
+                addCell(dirty, shownHeadX, shownHeadY);
+                addCell(dirty, shownFromTailX, shownFromTailY);
+                addCell(dirty, shownTailX, shownTailY);
+                addCell(dirty, fromHeadX, fromHeadY);
+                addCell(dirty, sim.getX(0), sim.getY(0));
+                addCell(dirty, fromTailX, fromTailY);
+                addCell(dirty, sim.getX(sim.getBodyParts() - 1), sim.getY(sim.getBodyParts() - 1));
+                if (sim.getApplesEaten() != shownScore) {
+                    addCell(dirty, shownAppleX, shownAppleY);
+                    addCell(dirty, sim.getAppleX(), sim.getAppleY());
+                    scoreLabel.setScore(sim.getApplesEaten());
+                    addScore(dirty, shownScoreWidth);
+                    addScore(dirty, scoreLabel.getWidth());
+                }
+            }
+            shownTicks = ticks;
+            shownRunning = sim.isRunning();
+            shownViewX = viewX;
+            shownViewY = viewY;
+            shownHeadX = sim.getX(0);
+            shownHeadY = sim.getY(0);
+            shownTailX = sim.getX(sim.getBodyParts() - 1);
+            shownTailY = sim.getY(sim.getBodyParts() - 1);
+            shownFromHeadX = fromHeadX;
+            shownFromHeadY = fromHeadY;
+            shownFromTailX = fromTailX;
+            shownFromTailY = fromTailY;
+            shownAlpha = drawn;
+            shownAppleX = sim.getAppleX();
+            shownAppleY = sim.getAppleY();
+            shownScore = sim.getApplesEaten();
+            scoreLabel.setScore(shownScore);
+            shownScoreWidth = scoreLabel.getWidth();
+        }
+
+        // Cells outside the view are clipped away by the region.
+        private void addCell(DirtyRegion dirty, int x, int y) {
+            dirty.add((x - viewX) * UNIT_SIZE, (y - viewY) * UNIT_SIZE, UNIT_SIZE, UNIT_SIZE);
+        }
+
+        /** Moves the view to center the head if it came within VIEW_MARGIN cells of an edge. */
+        private void followHead() {
+            viewX = follow(viewX, sim.getX(0), viewCols, sim.getCols());
+            viewY = follow(viewY, sim.getY(0), viewRows, sim.getRows());
+        }
+
+        private int follow(int view, int head, int size, int cells) {
+            if (head < view + VIEW_MARGIN || head >= view + size - VIEW_MARGIN) {
+                view = head - size / 2;
+            }
+            return Math.max(0, Math.min(view, cells - size));
+        }
+
+        // The score is centered, so its bounds depend on its width.
+        private void addScore(DirtyRegion dirty, int width) {
+            dirty.add((SCREEN_WIDTH - width) / 2, SCORE_FONT.getSize() - scoreLabel.getAscent(), width, scoreLabel.getHeight());
+        }
+
+        /** Paints the background and the grid into the cached board layer. */
+        private void drawBoard(Graphics2D g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+            // Optionally, draw a grid (for visual aid)
+            g.setColor(Color.darkGray);
+            for (int i = 0; i < viewCols; i++) {
+                g.drawLine(i * UNIT_SIZE, 0, i * UNIT_SIZE, SCREEN_HEIGHT);
+            }
+            for (int i = 0; i < viewRows; i++) {
+                g.drawLine(0, i * UNIT_SIZE, SCREEN_WIDTH, i * UNIT_SIZE);
+            }
+        }
+
+        /** Draws the apple, snake, and score on top of the board. */
+        public void draw(Graphics2D g) {
+            if (sim.isRunning()) {
+                // Draw the apple if it is in view
+                int appleX = sim.getAppleX() - viewX;
+                int appleY = sim.getAppleY() - viewY;
+                if (appleX >= 0 && appleX < viewCols && appleY >= 0 && appleY < viewRows) {
+                    g.drawImage(APPLE_SPRITE, appleX * UNIT_SIZE, appleY * UNIT_SIZE, null);
+                }
+
+                // Draw the snake: the body with a slightly different green, then the head in a brighter color.
+                // Between two ticks the head slides into its new cell and the tail out of its old one.
+                drawBody(g);
+                float drawn = drawnAlpha();
+                int tailX = sim.getX(sim.getBodyParts() - 1);
+                int tailY = sim.getY(sim.getBodyParts() - 1);
+                if (tailX != fromTailX || tailY != fromTailY) {
+                    g.setColor(BODY_COLOR);
+                    fillCell(g, fromTailX, fromTailY, tailX, tailY, drawn);
+                }
+                g.setColor(Color.green);
+                fillCell(g, fromHeadX, fromHeadY, sim.getX(0), sim.getY(0), drawn);
+
+                // Draw the score at the top center of the screen
+                drawScore(g);
+            } else {
+                gameOver(g);
+            }
+        }
+
+        // Fills a cell the given part of the way from one cell to the next.
+        private void fillCell(Graphics2D g, int fromX, int fromY, int toX, int toY, float alpha) {
+            int x = (fromX - viewX) * UNIT_SIZE + Math.round((toX - fromX) * UNIT_SIZE * alpha);
+            int y = (fromY - viewY) * UNIT_SIZE + Math.round((toY - fromY) * UNIT_SIZE * alpha);
+            g.fillRect(x, y, UNIT_SIZE, UNIT_SIZE);
+        }
+
+        /**
+         * Draws the body cells inside the clip, looked up on the board rather than walked
+         * along the snake, with every run of them in a row filled as one rectangle. The
+         * head's cell is left to the head, which may not have reached it yet.
+         */
+        private void drawBody(Graphics2D g) {
+            clip.setBounds(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+            g.getClipBounds(clip);
+            int fromCol = Math.max(0, clip.x / UNIT_SIZE);
+            int toCol = Math.min(viewCols, (clip.x + clip.width + UNIT_SIZE - 1) / UNIT_SIZE);
+            int fromRow = Math.max(0, clip.y / UNIT_SIZE);
+            int toRow = Math.min(viewRows, (clip.y + clip.height + UNIT_SIZE - 1) / UNIT_SIZE);
+            int headCol = sim.getX(0) - viewX;
+            int headRow = sim.getY(0) - viewY;
+            g.setColor(BODY_COLOR);
+            for (int row = fromRow; row < toRow; row++) {
+                int run = -1;
+                for (int col = fromCol; col <= toCol; col++) {
+                    boolean occupied = col < toCol && sim.isOccupied(viewX + col, viewY + row)
+                            && (col != headCol || row != headRow);
+                    if (occupied && run < 0) {
+                        run = col;
+                    } else if (!occupied && run >= 0) {
+                        g.fillRect(run * UNIT_SIZE, row * UNIT_SIZE, (col - run) * UNIT_SIZE, UNIT_SIZE);
+                        run = -1;
                     }
-                    break;
+                }
             }
         }
+
+        /** Displays the "Game Over" screen along with the final score. */
+        public void gameOver(Graphics2D g) {
+            // Display the score
+            drawScore(g);
+
+            // Display "Game Over" text
+            GAME_OVER_TEXT.draw(g, (SCREEN_WIDTH - GAME_OVER_TEXT.getWidth()) / 2, SCREEN_HEIGHT / 2);
+        }
+
+        /** Renders a filled oval of the given size into a transparent image. */
+        private static BufferedImage ovalSprite(int size, Color color) {
+            BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics g = sprite.getGraphics();
+            g.setColor(color);
+            g.fillOval(0, 0, size, size);
+            g.dispose();
+            return sprite;
+        }
+
+        /** Draws the score centered at the top of the screen. */
+        private void drawScore(Graphics2D g) {
+            scoreLabel.setScore(sim.getApplesEaten());
+            scoreLabel.draw(g, (SCREEN_WIDTH - scoreLabel.getWidth()) / 2, SCORE_FONT.getSize());
+        }
     }
 }
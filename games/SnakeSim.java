@@ -0,0 +1,502 @@
+import java.util.Arrays;
+
+/**
+ * The SnakeSim class contains the game rules without any Swing dependency, so it can be
+ * stepped headless and as fast as the CPU allows (for example as a reinforcement learning
+ * environment). Coordinates are in grid cells, not pixels.
+ *
+ * The body is a circular buffer of cells, each packed into one int as y * cols + x: a
+ * tick writes the new head and drops the tail by moving an index, and a bitset with one
+ * bit per cell answers "is this cell part of the snake" directly, so a tick costs the same
+ * whatever the length of the snake. Boards of 10,000 x 10,000 cells take 12.5 MB for the
+ * bitset, and the body buffer grows with the snake. A new apple is drawn uniformly from the
+ * empty cells. On boards of up to 65,536 cells they are the first entries of a permutation
+ * of all cells, which a cell moves in or out of in O(1), so drawing one is a single
+ * lookup; that takes 8 bytes a cell and goes into every snapshot. Larger boards count the
+ * empty cells in every block of 4096 instead and draw one by rank, which takes a few
+ * thousand steps on the largest board but only 1 KB per million cells.
+ *
+ * Next to the cells, the body is kept as the step each part took from the one behind it,
+ * two bits a part, and a snapshot holds the steps instead of the cells: a tick changes two
+ * bits of it instead of an int, so a RewindBuffer has a sixteenth as much body to store
+ * between two snapshots.
+ */
+class SnakeSim {
+
+    // Directions accepted by turn() and step(); any other value keeps the current direction.
+    public static final char UP = 'U';
+    public static final char DOWN = 'D';
+    public static final char LEFT = 'L';
+    public static final char RIGHT = 'R';
+
+    // Rewards returned by step().
+    public static final int REWARD_NONE = 0;
+    public static final int REWARD_APPLE = 1;
+    public static final int REWARD_DEATH = -1;
+
+    // Initial snake length
+    private static final int INITIAL_BODY_PARTS = 6;
+
+    // Board size in cells
+    private final int cols;
+    private final int rows;
+
+    // Cells per block of the empty cell counts, as a shift, and the largest body buffer
+    // allocated up front; past that it doubles as the snake grows. Boards of up to as many
+    // cells also keep the permutation of the empty cells.
+    private static final int BLOCK_SHIFT = 12;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    // Circular buffer holding the cells (y * cols + x) of the snake segments; the head is
+    // at index head and the tail bodyParts - 1 slots before it.
+    private int body[];
+    private int head;
+    // Slots written since the episode started or the buffer grew; the rest are unused.
+    private int slotsUsed;
+    // The step into the cell of every slot from the slot before, as stepCode() gives it,
+    // sixteen slots to an int, and how many parts of the initial coil are still on the
+    // cell of the tail besides the first, which took no step.
+    private int steps[];
+    private int coiled;
+
+    // One bit per cell, set while part of the snake is on it. The snake starts coiled up
+    // on one cell, and those parts are always next to each other at the tail, so a cell is
+    // only cleared when the last of them leaves it. The bits past the last cell are set,
+    // so they never count as empty.
+    private final long occupied[];
+
+    // Permutation of all cells whose first freeCount entries are the empty cells, and the
+    // position of every cell in it, so a cell moves in or out of the empty set in O(1).
+    // Null on boards of more than INITIAL_CAPACITY cells.
+    private final int free[];
+    private final int freeSlot[];
+    // Number of empty cells in every block of cells, on the boards without the permutation.
+    private final int blockFree[];
+    // Number of empty cells on the whole board.
+    private int freeCount;
+
+    private int bodyParts;
+    private int applesEaten;
+    private int appleX;
+    private int appleY;
+    private char direction;
+    private boolean running;
+    private boolean boardFull;
+    private long ticks;
+    private final SnapshotRandom random = new SnapshotRandom();
+
+    public SnakeSim(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        int cells = cols * rows;
+        // Every cell can hold a segment, plus the extra ones of the initial coil.
+        body = new int[Math.min(cells + INITIAL_BODY_PARTS, INITIAL_CAPACITY)];
+        steps = new int[(body.length + 15) >>> 4];
+        occupied = new long[(cells + 63) >>> 6];
+        if ((cells & 63) != 0) {
+            occupied[occupied.length - 1] = -1L << cells;
+        }
+        if (cells <= INITIAL_CAPACITY) {
+            free = new int[cells];
+            freeSlot = new int[cells];
+            for (int c = 0; c < cells; c++) {
+                free[c] = c;
+                freeSlot[c] = c;
+            }
+            blockFree = null;
+        } else {
+            free = null;
+            freeSlot = null;
+            blockFree = new int[((cells - 1) >>> BLOCK_SHIFT) + 1];
+            for (int b = 0; b < blockFree.length; b++) {
+                blockFree[b] = Math.min(cells - (b << BLOCK_SHIFT), 1 << BLOCK_SHIFT);
+            }
+        }
+        freeCount = cells;
+    }
+
+    /** Starts a new episode; the same seed always produces the same episode for the same actions. */
+    public void reset(long seed) {
+        random.setSeed(seed);
+        // Clear the cells of the previous snake, then coil the new one up in the corner.
+        for (int i = 0; i < bodyParts; i++) {
+            vacate(body[index(i)]);
+        }
+        // Snapshots hold whole ints of steps, so clear the slots of the previous episode.
+        Arrays.fill(steps, 0, (slotsUsed + 15) >>> 4, 0);
+        for (int i = 0; i < INITIAL_BODY_PARTS; i++) {
+            body[i] = cell(0, 0);
+        }
+        occupy(cell(0, 0));
+        head = INITIAL_BODY_PARTS - 1;
+        slotsUsed = INITIAL_BODY_PARTS;
+        bodyParts = INITIAL_BODY_PARTS;
+        coiled = INITIAL_BODY_PARTS - 1;
+        applesEaten = 0;
+        direction = RIGHT;
+        running = true;
+        boardFull = false;
+        ticks = 0;
+        newApple();
+    }
+
+    /** Changes the direction of the snake, ignoring requests to reverse into itself. */
+    public void turn(char action) {
+        switch (action) {
+            case LEFT:
+                if (direction != RIGHT) {
+                    direction = LEFT;
+                }
+                break;
+            case RIGHT:
+                if (direction != LEFT) {
+                    direction = RIGHT;
+                }
+                break;
+            case UP:
+                if (direction != DOWN) {
+                    direction = UP;
+                }
+                break;
+            case DOWN:
+                if (direction != UP) {
+                    direction = DOWN;
+                }
+                break;
+        }
+    }
+
+    /** Applies the action and advances one tick; returns the reward for this tick. */
+    public int step(char action) {
+        turn(action);
+        return tick();
+    }
+
+    /**
+     * Applies actions one per tick until they run out or the game ends, storing the reward of
+     * each tick in rewards (which may be null). Returns the number of ticks performed.
+     */
+    public int step(char[] actions, int[] rewards) {
+        int n = 0;
+        while (n < actions.length && running) {
+            int reward = step(actions[n]);
+            if (rewards != null) {
+                rewards[n] = reward;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /** Advances the game by one tick in the current direction; returns the reward for this tick. */
+    public int tick() {
+        if (!running) {
+            return REWARD_NONE;
+        }
+        ticks++;
+
+        // Work out where the head goes based on the current direction
+        int headX = getX(0);
+        int headY = getY(0);
+        switch (direction) {
+            case UP:
+                headY--;
+                break;
+            case DOWN:
+                headY++;
+                break;
+            case LEFT:
+                headX--;
+                break;
+            case RIGHT:
+                headX++;
+                break;
+        }
+
+        // Check if the head leaves the board
+        if (headX < 0 || headX >= cols || headY < 0 || headY >= rows) {
+            running = false;
+            return REWARD_DEATH;
+        }
+
+        // Check if the head collides with the body. The tail has not moved yet, so running
+        // into the cell the tail is about to leave counts as a collision.
+        int headCell = cell(headX, headY);
+        if (isOccupied(headCell)) {
+            running = false;
+            return REWARD_DEATH;
+        }
+
+        // Move: write the new head, then either grow if the snake's head has reached the
+        // apple or drop the tail. The apple is only placed once the head cell is taken.
+        if (bodyParts == body.length) {
+            grow();
+        }
+        int tail = body[index(bodyParts - 1)];
+        head = head + 1 == body.length ? 0 : head + 1;
+        slotsUsed = Math.max(slotsUsed, head + 1);
+        body[head] = headCell;
+        setStep(head, stepCode(direction));
+        occupy(headCell);
+        if (headX == appleX && headY == appleY) {
+            bodyParts++;
+            applesEaten++;
+            newApple();
+            return REWARD_APPLE;
+        }
+        // The tail keeps its cell if the next part of the initial coil is still on it.
+        if (coiled > 0) {
+            coiled--;
+        } else {
+            vacate(tail);
+        }
+        return REWARD_NONE;
+    }
+
+    // Doubles the body buffer, moving the tail to the start of it.
+    private void grow() {
+        int[] grown = new int[(int) Math.min(2L * body.length, (long) cols * rows + INITIAL_BODY_PARTS)];
+        int[] grownSteps = new int[(grown.length + 15) >>> 4];
+        for (int i = 0; i < bodyParts; i++) {
+            int slot = bodyParts - 1 - i;
+            grown[slot] = body[index(i)];
+            grownSteps[slot >>> 4] |= getStep(index(i)) << ((slot & 15) << 1);
+        }
+        body = grown;
+        steps = grownSteps;
+        head = bodyParts - 1;
+        slotsUsed = bodyParts;
+    }
+
+    private static int stepCode(char direction) {
+        switch (direction) {
+            case UP:
+                return 0;
+            case DOWN:
+                return 1;
+            case LEFT:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    private int getStep(int slot) {
+        return steps[slot >>> 4] >>> ((slot & 15) << 1) & 3;
+    }
+
+    private void setStep(int slot, int step) {
+        int shift = (slot & 15) << 1;
+        steps[slot >>> 4] = steps[slot >>> 4] & ~(3 << shift) | step << shift;
+    }
+
+    // The cell a part came from, given its cell and the step it took into it.
+    private int stepBack(int c, int step) {
+        switch (step) {
+            case 0:
+                return c + cols;
+            case 1:
+                return c - cols;
+            case 2:
+                return c + 1;
+            default:
+                return c - 1;
+        }
+    }
+
+    /** Positions a new apple on a random empty cell; ends the game if there is none left. */
+    private void newApple() {
+        if (freeCount == 0) {
+            boardFull = true;
+            running = false;
+            appleX = -1;
+            appleY = -1;
+            return;
+        }
+        int c = emptyCell(random.nextInt(freeCount));
+        appleX = c % cols;
+        appleY = c / cols;
+    }
+
+    // Returns the empty cell of the given rank: in the permutation if there is one, or
+    // counting from the first cell.
+    private int emptyCell(int rank) {
+        if (free != null) {
+            return free[rank];
+        }
+        int b = 0;
+        while (rank >= blockFree[b]) {
+            rank -= blockFree[b++];
+        }
+        int w = b << (BLOCK_SHIFT - 6);
+        while (true) {
+            long empty = ~occupied[w];
+            int count = Long.bitCount(empty);
+            if (rank < count) {
+                for (; rank > 0; rank--) {
+                    empty &= empty - 1;
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(empty);
+            }
+            rank -= count;
+            w++;
+        }
+    }
+
+    // Marks a cell as part of the snake.
+    private void occupy(int c) {
+        long bit = 1L << c;
+        if ((occupied[c >>> 6] & bit) == 0) {
+            occupied[c >>> 6] |= bit;
+            freeCount--;
+            if (free != null) {
+                swapFree(c, freeCount);
+            } else {
+                blockFree[c >>> BLOCK_SHIFT]--;
+            }
+        }
+    }
+
+    // Marks a cell as empty.
+    private void vacate(int c) {
+        long bit = 1L << c;
+        if ((occupied[c >>> 6] & bit) != 0) {
+            occupied[c >>> 6] &= ~bit;
+            if (free != null) {
+                swapFree(c, freeCount);
+            } else {
+                blockFree[c >>> BLOCK_SHIFT]++;
+            }
+            freeCount++;
+        }
+    }
+
+    // Moves cell c to the given position of the free permutation.
+    private void swapFree(int c, int slot) {
+        int other = free[slot];
+        int from = freeSlot[c];
+        free[slot] = c;
+        freeSlot[c] = slot;
+        free[from] = other;
+        freeSlot[other] = from;
+    }
+
+    // Slot of the given body part in the circular buffer; part 0 is the head.
+    private int index(int part) {
+        int i = head - part;
+        return i < 0 ? i + body.length : i;
+    }
+
+    private int cell(int cellX, int cellY) {
+        return cellY * cols + cellX;
+    }
+
+    /** Returns true if any part of the snake is on the given cell. */
+    public boolean isOccupied(int cellX, int cellY) {
+        return isOccupied(cell(cellX, cellY));
+    }
+
+    private boolean isOccupied(int c) {
+        return (occupied[c >>> 6] & 1L << c) != 0;
+    }
+
+    /**
+     * Writes the state of the episode to a snapshot; the board size is fixed, so it is not
+     * part of it. The body is written as the cell of the head and the steps of every slot,
+     * so the next tick only changes the head cell and the two bits of the new head's step,
+     * and on the boards with the permutation of empty cells, the few entries it swapped.
+     */
+    public void saveState(GameState state) {
+        state.writeLong(ticks);
+        state.writeInt(direction);
+        state.writeBoolean(running);
+        state.writeBoolean(boardFull);
+        state.writeInt(applesEaten);
+        state.writeInt(appleX);
+        state.writeInt(appleY);
+        state.writeRandom(random);
+        state.writeInt(body.length);
+        state.writeInt(head);
+        state.writeInt(bodyParts);
+        state.writeInt(slotsUsed);
+        state.writeInt(coiled);
+        state.writeInt(body[head]);
+        state.writeInts(steps, 0, (slotsUsed + 15) >>> 4);
+        // Which empty cell the next apple goes on depends on the order of the permutation.
+        if (free != null) {
+            state.writeInts(free, 0, free.length);
+        }
+    }
+
+    /** Puts the episode back in a state written by saveState(). */
+    public void loadState(GameState state) {
+        ticks = state.readLong();
+        direction = (char) state.readInt();
+        running = state.readBoolean();
+        boardFull = state.readBoolean();
+        applesEaten = state.readInt();
+        appleX = state.readInt();
+        appleY = state.readInt();
+        state.readRandom(random);
+        // Take the current snake off the board before the restored one goes on it.
+        for (int i = 0; i < bodyParts; i++) {
+            vacate(body[index(i)]);
+        }
+        int length = state.readInt();
+        int stepInts = (slotsUsed + 15) >>> 4;
+        if (body.length != length) {
+            body = new int[length];
+            steps = new int[(length + 15) >>> 4];
+            stepInts = 0;
+        }
+        head = state.readInt();
+        bodyParts = state.readInt();
+        slotsUsed = state.readInt();
+        coiled = state.readInt();
+        body[head] = state.readInt();
+        state.readInts(steps, 0, (slotsUsed + 15) >>> 4);
+        // Slots past the restored ones are unused, and their steps 0 as after reset().
+        Arrays.fill(steps, Math.min((slotsUsed + 15) >>> 4, stepInts), stepInts, 0);
+        // Walk back from the head to lay out the cells of the rest of the body; the parts
+        // still coiled up share the cell of the last one that moved.
+        int moved = bodyParts - coiled;
+        for (int i = 1; i < bodyParts; i++) {
+            int previous = body[index(i - 1)];
+            body[index(i)] = i < moved ? stepBack(previous, getStep(index(i - 1))) : previous;
+        }
+        for (int i = 0; i < bodyParts; i++) {
+            occupy(body[index(i)]);
+        }
+        if (free != null) {
+            state.readInts(free, 0, free.length);
+            for (int slot = 0; slot < free.length; slot++) {
+                freeSlot[free[slot]] = slot;
+            }
+        }
+    }
+
+    /** Returns a hash of the game state, the snake and the apple included. */
+    public long checksum() {
+        long hash = ticks;
+        for (int i = 0; i < bodyParts; i++) {
+            hash = 31 * (31 * hash + getX(i)) + getY(i);
+        }
+        hash = 31 * (31 * hash + appleX) + appleY;
+        hash = 31 * (31 * hash + applesEaten) + direction;
+        return 31 * hash + (running ? 1 : 0);
+    }
+
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
+    public int getX(int part) { return body[index(part)] % cols; }
+    public int getY(int part) { return body[index(part)] / cols; }
+    public int getBodyParts() { return bodyParts; }
+    public int getApplesEaten() { return applesEaten; }
+    public int getAppleX() { return appleX; }
+    public int getAppleY() { return appleY; }
+    public char getDirection() { return direction; }
+    public boolean isRunning() { return running; }
+    public boolean isBoardFull() { return boardFull; }
+    public int getFreeCells() { return freeCount; }
+    public long getTicks() { return ticks; }
+}
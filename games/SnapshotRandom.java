@@ -0,0 +1,45 @@
+import java.util.Random;
+
+/**
+ * The SnapshotRandom class is a java.util.Random whose state can be saved and restored.
+ * It runs the same generator, documented in java.util.Random, so it produces exactly the
+ * same numbers from the same seed.
+ */
+class SnapshotRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Set by setSeed(), which the Random constructor calls, so it has no initializer.
+    private long seed;
+
+    public SnapshotRandom() {
+    }
+
+    public SnapshotRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+
+    /** Returns the state of the generator, for setState(). */
+    public long getState() {
+        return seed;
+    }
+
+    /** Puts the generator back in a state returned by getState(). */
+    public void setState(long state) {
+        seed = state & MASK;
+    }
+}
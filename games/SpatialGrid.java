@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * The SpatialGrid class is a uniform grid of fixed-size cells holding entity ids in
+ * per-cell linked lists backed by int arrays. Clearing and refilling it every tick
+ * allocates nothing once the arrays have grown to the working-set size. Entities
+ * outside the world are clamped into the border cells.
+ */
+class SpatialGrid {
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    // First entry of each cell's list, or -1 when the cell is empty.
+    private final int[] cellHead;
+    // Entry storage: the id held by each entry and the next entry in the same cell.
+    private int[] entryId = new int[256];
+    private int[] entryNext = new int[256];
+    private int entries;
+    // Results of the last query.
+    private int[] candidates = new int[64];
+
+    public SpatialGrid(int worldWidth, int worldHeight, int cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (worldWidth + cellSize - 1) / cellSize);
+        this.rows = Math.max(1, (worldHeight + cellSize - 1) / cellSize);
+        cellHead = new int[cols * rows];
+        clear();
+    }
+
+    /** Removes every entity from the grid. */
+    public void clear() {
+        Arrays.fill(cellHead, -1);
+        entries = 0;
+    }
+
+    /** Adds the entity with the given id to every cell its bounds overlap. */
+    public void insert(int id, int x, int y, int width, int height) {
+        int c0 = column(x);
+        int c1 = column(x + width - 1);
+        int r0 = row(y);
+        int r1 = row(y + height - 1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                if (entries == entryId.length) {
+                    entryId = Arrays.copyOf(entryId, entries * 2);
+                    entryNext = Arrays.copyOf(entryNext, entries * 2);
+                }
+                int cell = r * cols + c;
+                entryId[entries] = id;
+                entryNext[entries] = cellHead[cell];
+                cellHead[cell] = entries++;
+            }
+        }
+    }
+
+    /**
+     * Collects the ids stored in every cell the bounds overlap and returns how many were found;
+     * read them with candidate(). An id may appear more than once if it spans several cells.
+     */
+    public int query(int x, int y, int width, int height) {
+        int c0 = column(x);
+        int c1 = column(x + width - 1);
+        int r0 = row(y);
+        int r1 = row(y + height - 1);
+        int found = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (int e = cellHead[r * cols + c]; e != -1; e = entryNext[e]) {
+                    if (found == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, found * 2);
+                    }
+                    candidates[found++] = entryId[e];
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Returns the i-th id found by the last query. */
+    public int candidate(int i) {
+        return candidates[i];
+    }
+
+    private int column(int x) {
+        return Math.min(cols - 1, Math.max(0, Math.floorDiv(x, cellSize)));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, Math.floorDiv(y, cellSize)));
+    }
+}
@@ -0,0 +1,199 @@
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long every game takes from starting the JVM to its first frame on the screen,
+ * launched three ways: through JShell as the README shows, from compiled classes through
+ * Games, and the same with a class data sharing (AppCDS) archive. Every game is started with
+ * the system property games.exitAfterFirstFrame, so it prints GameLoop.FIRST_FRAME and exits
+ * as soon as a frame has been shown, and the time to that line is the startup time.
+ *
+ * The archive is built first, into the given directory next to games.jar, which holds the
+ * classes this runs from: every game is started once and lists the classes it loads, AWT
+ * and Swing included, and the merged list is dumped into games.jsa. The archive only works
+ * with that jar and that JVM, so rebuild both after a change:
+ *
+ *   > javac -encoding UTF-8 -d /tmp/games *.java
+ *   > java -cp /tmp/games StartupBenchmark dist
+ *   > java -XX:SharedArchiveFile=dist/games.jsa -cp dist/games.jar Games snake
+ *
+ * Optional arguments are the directory to build in (default a temporary one), the runs of
+ * every way (default 5), and the directory of the sources for JShell (default the current
+ * one). Without a screen the games cannot open a window, so every way draws the first
+ * frame into an image instead (GameLoop.renderFirstFrame), which leaves out opening the
+ * window but still loads and starts the games.
+ */
+public class StartupBenchmark {
+
+    private static final String[] WAYS = {"JShell", "compiled", "AppCDS"};
+    // The files JShell needs for every game, in the order it needs them, as in the README.
+    private static final String[] JSHELL_FILES = {
+        "ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java",
+        "EntityStore.java TextSprite.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java",
+        "EntityStore.java ScoreLabel.java TextSprite.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java"};
+    private static final String PROBE = "-Dgames.exitAfterFirstFrame=true";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path dir = args != null && args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("games");
+        int runs = args != null && args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path sources = args != null && args.length > 2 ? Path.of(args[2]) : Path.of(".");
+        boolean headless = GraphicsEnvironment.isHeadless();
+
+        Files.createDirectories(dir);
+        Path jar = writeJar(dir.resolve("games.jar").toAbsolutePath());
+        Path archive = buildArchive(jar, dir.resolve("games.jsa").toAbsolutePath());
+        System.out.printf("Built %s and %s (%,d bytes)%n", jar, archive, Files.size(archive));
+        if (headless) {
+            System.out.println("No screen: every way draws its first frame into an image instead of a window");
+        }
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String jshell = Path.of(System.getProperty("java.home"), "bin", "jshell").toString();
+        long[][][] millis = new long[Games.NAMES.length][WAYS.length][runs];
+        // The ways take turns, so a slow stretch of the machine does not fall on just one.
+        for (int run = 0; run < runs; run++) {
+            for (int i = 0; i < Games.NAMES.length; i++) {
+                List<String> command = new ArrayList<>(List.of(jshell, "-R" + PROBE));
+                for (String file : JSHELL_FILES[i].split(" ")) {
+                    Path source = sources.resolve(file);
+                    if (!Files.exists(source)) {
+                        throw new IllegalArgumentException("No " + source + "; pass the directory of the sources");
+                    }
+                    command.add(source.toAbsolutePath().toString());
+                }
+                millis[i][0][run] = firstFrameMillis(command, jshellInput(Games.CLASSES[i], headless));
+                millis[i][1][run] = firstFrameMillis(List.of(java, PROBE, "-cp", jar.toString(), "Games", Games.NAMES[i]),
+                                                     null);
+                millis[i][2][run] = firstFrameMillis(List.of(java, "-Xshare:on", "-XX:SharedArchiveFile=" + archive, PROBE,
+                                                             "-cp", jar.toString(), "Games", Games.NAMES[i]),
+                                                     null);
+            }
+        }
+
+        System.out.printf("Start to first frame, median (best) of %d runs:%n", runs);
+        for (int i = 0; i < Games.NAMES.length; i++) {
+            StringBuilder line = new StringBuilder(String.format("%-16s", Games.CLASSES[i]));
+            long jshellMedian = median(millis[i][0]);
+            for (int way = 0; way < WAYS.length; way++) {
+                long median = median(millis[i][way]);
+                line.append(String.format("  %-8s %,6d ms (%,6d)", WAYS[way], median,
+                                          Arrays.stream(millis[i][way]).min().getAsLong()));
+                if (way > 0) {
+                    line.append(String.format(" %4.1fx", (double) jshellMedian / median));
+                }
+            }
+            System.out.println(line);
+        }
+    }
+
+    // What JShell is given to start the game: its main method as the README shows, or
+    // without a screen a frame of its panel drawn offscreen, as Games does then.
+    private static String jshellInput(String game, boolean headless) {
+        if (!headless) {
+            return game + ".main(null)\n";
+        }
+        return "var panel = new " + game + ".GamePanel()\n"
+               + "GameLoop.renderFirstFrame(panel, panel.getPreferredSize().width, panel.getPreferredSize().height)\n";
+    }
+
+    // Puts the classes this runs from into a jar, as class data sharing only takes classes
+    // from jars, with Games as its main class.
+    private static Path writeJar(Path jar) throws IOException {
+        Path classes = Path.of(System.getProperty("java.class.path").split(java.io.File.pathSeparator)[0]);
+        if (!Files.isDirectory(classes)) {
+            throw new IllegalStateException("Run from a directory of compiled classes, not " + classes);
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Games");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest);
+             Stream<Path> files = Files.list(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class")).sorted()::iterator) {
+                out.putNextEntry(new JarEntry(file.getFileName().toString()));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    // Starts every game from the jar once to list the classes it loads, and dumps them all
+    // into one archive.
+    private static Path buildArchive(Path jar, Path archive) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Set<String> classes = new LinkedHashSet<>();
+        for (String game : Games.NAMES) {
+            Path list = archive.resolveSibling(game + ".classlist");
+            firstFrameMillis(List.of(java, "-Xshare:off", "-XX:DumpLoadedClassList=" + list, PROBE,
+                                     "-cp", jar.toString(), "Games", game),
+                             null);
+            classes.addAll(Files.readAllLines(list));
+            Files.delete(list);
+        }
+        Path list = archive.resolveSibling("games.classlist");
+        Files.write(list, classes);
+        Process dump = new ProcessBuilder(java, "-Xshare:dump", "-XX:SharedClassListFile=" + list,
+                                          "-XX:SharedArchiveFile=" + archive, "-cp", jar.toString())
+                .redirectErrorStream(true).start();
+        String output = new String(dump.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (dump.waitFor() != 0) {
+            throw new IllegalStateException("Dumping the archive failed:\n" + output);
+        }
+        Files.delete(list);
+        return archive;
+    }
+
+    // Runs the command, writes the input to it if there is any, and returns the time until
+    // it reports its first frame.
+    private static long firstFrameMillis(List<String> command, String input) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        OutputStream in = process.getOutputStream();
+        if (input != null) {
+            // JShell runs what it is given and exits at the end of it, so that stays open.
+            in.write(input.getBytes(StandardCharsets.UTF_8));
+            in.flush();
+        }
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                                                                           StandardCharsets.UTF_8))) {
+            for (String line; (line = out.readLine()) != null; ) {
+                if (line.endsWith(GameLoop.FIRST_FRAME)) {
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    in.close();
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                        process.destroyForcibly().waitFor();
+                    }
+                    return millis;
+                }
+                output.append(line).append('\n');
+            }
+        } finally {
+            process.destroyForcibly();
+        }
+        throw new IllegalStateException(String.join(" ", command) + " exited without a frame:\n" + output);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,73 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+/**
+ * The StaticLayer class caches a part of a frame that never changes (a background, a grid,
+ * the ground) in an accelerated VolatileImage, so a frame copies it with a single blit
+ * instead of drawing it again. The image is created for the configuration of the Graphics
+ * it is drawn into and is repainted whenever its contents are lost, for example when the
+ * display mode changes.
+ */
+class StaticLayer {
+    private final int width;
+    private final int height;
+    private final int transparency;
+    private final Consumer<Graphics2D> painter;
+
+    private VolatileImage image;
+    private int rebuilds;
+
+    /**
+     * Creates a layer of the given size and Transparency. The painter draws its contents
+     * and is called again every time they have to be rebuilt.
+     */
+    public StaticLayer(int width, int height, int transparency, Consumer<Graphics2D> painter) {
+        this.width = width;
+        this.height = height;
+        this.transparency = transparency;
+        this.painter = painter;
+    }
+
+    /** Draws the layer with its top left corner at (x, y). */
+    public void draw(Graphics2D g, int x, int y) {
+        do {
+            GraphicsConfiguration config = g.getDeviceConfiguration();
+            int status = image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (image != null) {
+                    image.flush();
+                }
+                image = config.createCompatibleVolatileImage(width, height, transparency);
+                paint();
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                paint();
+            }
+            g.drawImage(image, x, y, null);
+        } while (image.contentsLost());
+    }
+
+    /** Returns how many times the contents were painted, the first time included. */
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    // Paints the contents into the image, clearing it first when it is translucent.
+    private void paint() {
+        Graphics2D g = image.createGraphics();
+        try {
+            if (transparency != Transparency.OPAQUE) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, width, height);
+                g.setComposite(AlphaComposite.SrcOver);
+            }
+            painter.accept(g);
+        } finally {
+            g.dispose();
+        }
+        rebuilds++;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+/**
+ * The SystemSet class runs the systems that move the entities of Mars Attacks, each over
+ * the EntityStore it updates, in the order they were added. A store holds one kind of
+ * entity, so it is cut into chunks of CHUNK entities, and every chunk goes through all the
+ * systems of its store in turn while it is still in the cache. Large swarms are moved by
+ * PartitionedTick instead, strip by strip of the world.
+ */
+class SystemSet {
+    /**
+     * Entities in a chunk: 16 KB of every int field, so a chunk stays in the cache from
+     * one system to the next.
+     */
+    public static final int CHUNK = 4096;
+
+    // The systems and their stores, in the order they run.
+    private EntityStore[] stores = new EntityStore[4];
+    private EntitySystem[] systems = new EntitySystem[4];
+    private int count;
+
+    /** Adds a system that updates the entities of the given store, after the ones before. */
+    public SystemSet add(EntityStore store, EntitySystem system) {
+        if (count == systems.length) {
+            stores = Arrays.copyOf(stores, count * 2);
+            systems = Arrays.copyOf(systems, count * 2);
+        }
+        stores[count] = store;
+        systems[count] = system;
+        count++;
+        return this;
+    }
+
+    /**
+     * Runs every system over every chunk of its store. The systems of a store follow each
+     * other in the list, and go together over a chunk.
+     */
+    public void run() {
+        for (int first = 0; first < count; ) {
+            EntityStore store = stores[first];
+            int last = first + 1;
+            while (last < count && stores[last] == store) {
+                last++;
+            }
+            for (int from = 0; from < store.size(); from += CHUNK) {
+                int to = Math.min(store.size(), from + CHUNK);
+                for (int s = first; s < last; s++) {
+                    systems[s].update(store, from, to);
+                }
+            }
+            first = last;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * The TextSprite class prerenders a fixed piece of text into a transparent image. Drawing
+ * the image does not allocate, while switching fonts on a Graphics to draw the text does.
+ */
+class TextSprite {
+    private final BufferedImage image;
+    private final int ascent;
+
+    public TextSprite(String text, Font font, Color color) {
+        // Measure with a scratch image so no component is needed.
+        Graphics2D scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        FontMetrics metrics = scratch.getFontMetrics(font);
+        scratch.dispose();
+
+        ascent = metrics.getAscent();
+        image = new BufferedImage(Math.max(1, metrics.stringWidth(text)),
+                                  Math.max(1, ascent + metrics.getDescent()),
+                                  BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        g.setColor(color);
+        g.setFont(font);
+        g.drawString(text, 0, ascent);
+        g.dispose();
+    }
+
+    /** Returns the advance width of the text. */
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    /** Draws the text with its baseline at (x, y), like Graphics.drawString. */
+    public void draw(Graphics g, int x, int y) {
+        g.drawImage(image, x, y - ascent, null);
+    }
+}
@@ -0,0 +1,9 @@
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("games.Tick")
+@Label("Game Tick")
+@Description("One fixed timestep of a game simulation")
+class TickEvent extends GameEvent {
+}
@@ -0,0 +1,180 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * The VectorEnv class steps many independent game instances in lockstep, for playing a
+ * game thousands of times to evaluate an agent. The instances are split into contiguous
+ * chunks that run in parallel on a ForkJoinPool; actions are read from, and observations,
+ * rewards and done flags are written into, primitive arrays that are allocated once, so a
+ * step allocates nothing of its own.
+ *
+ * Every instance draws its episodes from its own seed sequence, derived from the seed of
+ * the VectorEnv, the index of the instance and the number of the episode. The results are
+ * therefore the same whatever the size of the pool.
+ */
+class VectorEnv {
+
+    /** One game instance as seen by the VectorEnv. */
+    interface Env {
+        /** Starts a new episode. */
+        void reset(long seed);
+
+        /** Applies the action, advances the game by one tick and returns the reward. */
+        float step(int action);
+
+        /** Returns true once the episode has ended. */
+        boolean isDone();
+
+        /** Writes the observation of the current state into obs, starting at offset. */
+        void observe(float[] obs, int offset);
+    }
+
+    // Chunks per worker, so workers that finish early can steal the remaining chunks.
+    private static final int CHUNKS_PER_WORKER = 4;
+    // Smaller chunks cost more to schedule than they take to step.
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final Env[] envs;
+    private final int observationSize;
+    private final long seed;
+    private final long[] episodes;
+
+    private final int[] actions;
+    private final float[] observations;
+    private final float[] rewards;
+    private final boolean[] dones;
+
+    private final ForkJoinPool pool;
+    private final Chunk[] chunks;
+    private final AllChunks all;
+
+    /**
+     * Creates count instances with the factory (called with the index of each instance),
+     * each observing observationSize floats, stepped on the pool.
+     */
+    public VectorEnv(IntFunction<Env> factory, int count, int observationSize, long seed, ForkJoinPool pool) {
+        this.envs = new Env[count];
+        for (int i = 0; i < count; i++) {
+            envs[i] = factory.apply(i);
+        }
+        this.observationSize = observationSize;
+        this.seed = seed;
+        this.episodes = new long[count];
+        this.actions = new int[count];
+        this.observations = new float[count * observationSize];
+        this.rewards = new float[count];
+        this.dones = new boolean[count];
+        this.pool = pool;
+
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_WORKER, count / MIN_CHUNK_SIZE));
+        chunks = new Chunk[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c] = new Chunk((int) ((long) count * c / chunkCount), (int) ((long) count * (c + 1) / chunkCount));
+        }
+        // The tasks are reused every step; reinitialize() makes a completed task runnable again.
+        all = new AllChunks();
+    }
+
+    /** Starts a new episode in every instance and writes the first observations. */
+    public void reset() {
+        for (int i = 0; i < envs.length; i++) {
+            episodes[i] = 0;
+            envs[i].reset(seed(i, 0));
+            envs[i].observe(observations, i * observationSize);
+            rewards[i] = 0;
+            dones[i] = false;
+        }
+    }
+
+    /**
+     * Steps every instance with its action from getActions(). An instance whose episode
+     * ended reports done and is reset to its next episode right away, so its observation
+     * is already the first one of the new episode.
+     */
+    public void step() {
+        all.reinitialize();
+        pool.invoke(all);
+    }
+
+    /** Returns the actions array to fill in before calling step(), one entry per instance. */
+    public int[] getActions() {
+        return actions;
+    }
+
+    /** Returns the observations, observationSize floats per instance. */
+    public float[] getObservations() {
+        return observations;
+    }
+
+    /** Returns the reward each instance got from the last step. */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /** Returns whether the episode of each instance ended in the last step. */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /** Returns the number of finished episodes of instance i. */
+    public long getEpisodes(int i) {
+        return episodes[i];
+    }
+
+    public int size() {
+        return envs.length;
+    }
+
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    // Mixes the seed, instance and episode (SplitMix64 finalizer), so nearby indices
+    // still get unrelated random sequences.
+    private long seed(int instance, long episode) {
+        long z = seed + 0x9E3779B97F4A7C15L * (instance + 1) + 0xBF58476D1CE4E5B9L * episode;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Steps every chunk, each on whichever worker takes it.
+    private class AllChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            for (Chunk chunk : chunks) {
+                chunk.reinitialize();
+            }
+            ForkJoinTask.invokeAll(chunks);
+        }
+    }
+
+    // A contiguous range of instances stepped by one worker.
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                Env env = envs[i];
+                rewards[i] = env.step(actions[i]);
+                dones[i] = env.isDone();
+                if (dones[i]) {
+                    env.reset(seed(i, ++episodes[i]));
+                }
+                env.observe(observations, i * observationSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the aggregate throughput of VectorEnv for every game, stepping 4,096 seeded
+ * instances with random actions on pools of 1, 2, 4, ... up to all available cores, and
+ * reports steps/sec, the speedup over one core and the bytes allocated per step. It also
+ * checks that every pool size produces exactly the same observations and rewards, and
+ * fails with an AssertionError if not.
+ *
+ *   > jshell EntityStore.java ScoreLabel.java TextSprite.java StaticLayer.java DirtyRegion.java Histogram.java GameEvent.java TickEvent.java FrameEvent.java RollingHistogram.java PerfOverlay.java GameLoop.java GameState.java SnapshotRandom.java InputLog.java InputRecorder.java InputQueue.java GameCanvas.java SnakeSim.java SnakeAutopilot.java SnakeGame.java Dinosaur.java Cactus.java CactusDeque.java DinoSim.java DinoGame.java EntitySystem.java Movement.java SystemSet.java Player.java Bullet.java Alien.java SpatialGrid.java BulletAlienCollider.java PartitionedTick.java MarsAttacksSim.java MarsAttacksGame.java VectorEnv.java SnakeEnv.java DinoEnv.java MarsAttacksEnv.java VectorEnvBenchmark.java
+ *   jshell> VectorEnvBenchmark.main(null)
+ */
+public class VectorEnvBenchmark {
+
+    private static final int INSTANCES = 4096;
+    private static final int CHECKED_STEPS = 200;
+    private static final long MEASURED_NANOS = 1_000_000_000L;
+    private static final int ACTION_STEPS = 256;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d instances per game, %d cores%n", INSTANCES, cores);
+        System.out.printf("%-16s %7s %16s %9s %12s%n", "game", "workers", "steps/sec", "speedup", "bytes/step");
+        run("SnakeGame", i -> new SnakeEnv(24, 24), SnakeEnv.OBSERVATION_SIZE, SnakeEnv.ACTIONS, cores);
+        run("DinoGame", i -> new DinoEnv(), DinoEnv.OBSERVATION_SIZE, DinoEnv.ACTIONS, cores);
+        run("MarsAttacksGame", i -> new MarsAttacksEnv(), MarsAttacksEnv.OBSERVATION_SIZE, MarsAttacksEnv.ACTIONS, cores);
+    }
+
+    private static void run(String game, IntFunction<VectorEnv.Env> factory, int observationSize, int actionCount,
+                            int cores) {
+        // Random actions, drawn up front so choosing them costs nothing while measuring.
+        Random random = new Random(42);
+        int[][] actions = new int[ACTION_STEPS][INSTANCES];
+        for (int[] step : actions) {
+            for (int i = 0; i < INSTANCES; i++) {
+                step[i] = random.nextInt(actionCount);
+            }
+        }
+
+        long expected = 0;
+        double baseline = 0;
+        for (int workers = 1; ; workers = Math.min(cores, workers * 2)) {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            VectorEnv env = new VectorEnv(factory, INSTANCES, observationSize, 7, pool);
+
+            // Same seed and actions, so every pool size has to end in the same state.
+            env.reset();
+            for (int s = 0; s < CHECKED_STEPS; s++) {
+                step(env, actions[s % ACTION_STEPS]);
+            }
+            long checksum = checksum(env);
+            if (workers == 1) {
+                expected = checksum;
+            } else if (checksum != expected) {
+                throw new AssertionError(game + " with " + workers + " workers diverged from 1 worker");
+            }
+
+            // Warm up, so the JIT has compiled the step and the entity stores have grown to size.
+            for (long end = System.nanoTime() + MEASURED_NANOS; System.nanoTime() < end; ) {
+                step(env, actions[random.nextInt(ACTION_STEPS)]);
+            }
+
+            long steps = 0;
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int s = 0; s < 100; s++) {
+                    step(env, actions[s]);
+                }
+                steps += 100;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MEASURED_NANOS);
+            bytes = allocatedBytes() - bytes;
+            pool.shutdown();
+
+            double rate = (double) steps * INSTANCES / elapsed * 1e9;
+            if (workers == 1) {
+                baseline = rate;
+            }
+            System.out.printf("%-16s %7d %,16.0f %8.2fx %12.1f%n", game, workers, rate, rate / baseline,
+                              (double) bytes / steps);
+            if (workers == cores) {
+                break;
+            }
+        }
+    }
+
+    private static void step(VectorEnv env, int[] actions) {
+        System.arraycopy(actions, 0, env.getActions(), 0, actions.length);
+        env.step();
+    }
+
+    private static long checksum(VectorEnv env) {
+        long hash = 1;
+        for (float value : env.getObservations()) {
+            hash = 31 * hash + Float.floatToIntBits(value);
+        }
+        for (float value : env.getRewards()) {
+            hash = 31 * hash + Float.floatToIntBits(value);
+        }
+        for (int i = 0; i < env.size(); i++) {
+            hash = 31 * hash + env.getEpisodes(i);
+        }
+        return hash;
+    }
+
+    // Bytes allocated by every thread of the JVM, so the pool workers are included.
+    private static long allocatedBytes() {
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+}